@@ -0,0 +1,300 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * This class is an asynchronous {@link Handler} which hands the published records over to a
+ * delegate handler on a single drain thread, so the logging thread never blocks on the delegate's
+ * I/O or its internal lock.
+ *
+ * <p>Records are passed through a pre-allocated bounded ring buffer. Producers claim a slot with a
+ * CAS on the tail sequence and publish it through a per-slot sequence number, the drain thread is
+ * the only consumer. The {@link WaitStrategy} decides how the drain thread waits for records (and
+ * how blocked producers wait for space), the {@link OverflowPolicy} decides what happens to a
+ * record when the buffer is full.
+ *
+ * <p>The source class and method of a record are inferred lazily from the stack of the thread
+ * that reads them, hence they are resolved on the publishing thread before the record is queued.
+ * The parameter array is copied into the slot, so the caller may reuse it once the logging call
+ * returns, and the drain thread delivers a copy of the record with the copied parameters, as the
+ * caller's record is also seen by the other handlers of the logger. The parameters are formatted
+ * by the delegate on the drain thread, so objects passed as parameters must not be changed after
+ * the call. Records published while the handler is closing are delivered by {@link #close()}.
+ */
+public class AsyncHandler extends Handler {
+
+  /** How the drain thread waits for new records and blocked producers wait for free slots. */
+  public enum WaitStrategy {
+    /** Busy spin, lowest latency at the cost of a fully used core. */
+    SPIN,
+    /** Spin with {@link Thread#yield()}, gives the core to other runnable threads. */
+    YIELD,
+    /** Park the thread until it is woken up, cheapest on CPU when logging is bursty. */
+    PARK
+  }
+
+  /** What happens with a record published while the ring buffer is full. */
+  public enum OverflowPolicy {
+    /** Wait until the drain thread frees a slot, no record is ever lost. */
+    BLOCK,
+    /** Silently discard the record. */
+    DROP,
+    /** Discard the record and report the number of dropped records through the delegate. */
+    DROP_AND_COUNT
+  }
+
+  private static final int DEFAULT_CAPACITY = 8192;
+  private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Handler delegate;
+  private final WaitStrategy waitStrategy;
+  private final OverflowPolicy overflowPolicy;
+
+  private final int mask;
+  private final LogRecord[] records;
+  private final Object[][] parameters;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+  private final Thread drainThread;
+
+  private volatile long head;
+  private volatile boolean sleeping;
+  private volatile boolean closed;
+  private long reportedDrops;
+
+  public AsyncHandler(Handler delegate) {
+    this(delegate, DEFAULT_CAPACITY, WaitStrategy.PARK, OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * Creates the handler and starts its drain thread.
+   *
+   * @param delegate the handler which receives the records on the drain thread
+   * @param capacity the number of slots of the ring buffer, rounded up to a power of two
+   * @param waitStrategy the strategy used when there is nothing to drain or no free slot
+   * @param overflowPolicy the policy used when the ring buffer is full
+   */
+  public AsyncHandler(
+      Handler delegate, int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity : " + capacity);
+    }
+    this.delegate = delegate;
+    this.waitStrategy = waitStrategy;
+    this.overflowPolicy = overflowPolicy;
+
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    size = Math.max(size, 1);
+    this.mask = size - 1;
+    this.records = new LogRecord[size];
+    this.parameters = new Object[size][];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+
+    this.drainThread = new Thread(this::drain, "AsyncHandler-drain");
+    this.drainThread.setDaemon(true);
+    this.drainThread.start();
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if (closed || !isLoggable(record)) {
+      return;
+    }
+    record.getSourceClassName();
+    Object[] recordParameters = record.getParameters();
+    if (recordParameters != null) {
+      recordParameters = recordParameters.clone();
+    }
+
+    while (!offer(record, recordParameters)) {
+      if (overflowPolicy == OverflowPolicy.DROP) {
+        return;
+      } else if (overflowPolicy == OverflowPolicy.DROP_AND_COUNT) {
+        dropped.increment();
+        return;
+      }
+      if (closed) {
+        return;
+      }
+      idle();
+    }
+    if (closed) {
+      // The drain thread may have stopped before the record was queued
+      drainLeftovers();
+    }
+  }
+
+  private boolean offer(LogRecord record, Object[] recordParameters) {
+    while (true) {
+      long position = tail.get();
+      int index = (int) position & mask;
+      long sequence = sequences.get(index);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          records[index] = record;
+          parameters[index] = recordParameters;
+          sequences.set(index, position + 1);
+          if (sleeping) {
+            LockSupport.unpark(drainThread);
+          }
+          return true;
+        }
+      } else if (sequence < position) {
+        return false;
+      }
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      if (deliverNext()) {
+        continue;
+      }
+
+      reportDrops();
+      long position = head;
+      if (closed && tail.get() == position) {
+        return;
+      }
+      if (waitStrategy == WaitStrategy.PARK) {
+        sleeping = true;
+        if (sequences.get((int) position & mask) != position + 1 && !closed) {
+          LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        sleeping = false;
+      } else {
+        idle();
+      }
+    }
+  }
+
+  // Delivers the record at the head if it is published, and returns whether there was one. Only
+  // one thread at a time consumes the records.
+  private boolean deliverNext() {
+    long position = head;
+    int index = (int) position & mask;
+    if (sequences.get(index) != position + 1) {
+      return false;
+    }
+    LogRecord record = records[index];
+    Object[] recordParameters = parameters[index];
+    records[index] = null;
+    parameters[index] = null;
+    sequences.lazySet(index, position + records.length);
+    head = position + 1;
+    deliver(recordParameters == null ? record : copyOf(record, recordParameters));
+    return true;
+  }
+
+  // Delivers the records queued after the drain thread stopped, on the calling thread
+  private synchronized void drainLeftovers() {
+    if (Thread.currentThread() == drainThread) {
+      // Drained by the loop this record is published from
+      return;
+    }
+    boolean interrupted = false;
+    while (drainThread.isAlive()) {
+      try {
+        drainThread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    long target = tail.get();
+    while (head < target) {
+      if (!deliverNext()) {
+        // The slot is claimed but not published yet
+        Thread.onSpinWait();
+      }
+    }
+    reportDrops();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static LogRecord copyOf(LogRecord record, Object[] recordParameters) {
+    LogRecord copy = new LogRecord(record.getLevel(), record.getMessage());
+    copy.setParameters(recordParameters);
+    copy.setInstant(record.getInstant());
+    copy.setSequenceNumber(record.getSequenceNumber());
+    copy.setLongThreadID(record.getLongThreadID());
+    copy.setLoggerName(record.getLoggerName());
+    copy.setResourceBundle(record.getResourceBundle());
+    copy.setResourceBundleName(record.getResourceBundleName());
+    copy.setSourceClassName(record.getSourceClassName());
+    copy.setSourceMethodName(record.getSourceMethodName());
+    copy.setThrown(record.getThrown());
+    return copy;
+  }
+
+  private void deliver(LogRecord record) {
+    try {
+      delegate.publish(record);
+    } catch (RuntimeException e) {
+      reportError("Delegate handler failed to publish the record", e, ErrorManager.WRITE_FAILURE);
+    }
+  }
+
+  private void reportDrops() {
+    long total = dropped.sum();
+    if (total != reportedDrops) {
+      LogRecord record =
+          new LogRecord(
+              Level.WARNING, "AsyncHandler dropped " + (total - reportedDrops) + " log records");
+      record.setSourceClassName(AsyncHandler.class.getName());
+      reportedDrops = total;
+      deliver(record);
+    }
+  }
+
+  private void idle() {
+    switch (waitStrategy) {
+      case SPIN:
+        Thread.onSpinWait();
+        break;
+      case YIELD:
+        Thread.yield();
+        break;
+      default:
+        LockSupport.parkNanos(this, PARK_NANOS);
+    }
+  }
+
+  /** Returns the number of records discarded because the ring buffer was full. */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /** Waits until every record published before this call is handed over, then flushes. */
+  @Override
+  public void flush() {
+    long target = tail.get();
+    while (head < target && drainThread.isAlive()) {
+      LockSupport.unpark(drainThread);
+      idle();
+    }
+    delegate.flush();
+  }
+
+  /** Drains the remaining records, stops the drain thread and closes the delegate. */
+  @Override
+  public void close() throws SecurityException {
+    closed = true;
+    LockSupport.unpark(drainThread);
+    drainLeftovers();
+    delegate.close();
+  }
+}
@@ -0,0 +1,141 @@
+package com.example;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * This class runs blocking JDBC work asynchronously, and returns {@link CompletableFuture}s of its
+ * results.
+ *
+ * <p>Each unit of work runs on its own virtual thread when the JDK has them, and on a fixed pool of
+ * daemon threads, one per allowed concurrent unit, otherwise. A {@link Semaphore} of the size of
+ * the connection pool bounds the number of units using a connection at once, so thousands of
+ * pending requests wait cheaply in the executor instead of all contending for the connections of
+ * the database. A unit borrows a connection from the data source, and returns it when it
+ * completes. The futures complete exceptionally with the {@link SQLException} of a failed unit,
+ * and only once the connection and the permit are released.
+ *
+ * <p>The fixed pool already has one thread per allowed concurrent unit, so the semaphore never
+ * blocks on a JDK without virtual threads, such as JDK 17, and only bounds the virtual threads.
+ */
+public final class AsyncJdbcExecutor implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(AsyncJdbcExecutor.class.getName());
+
+  /** A unit of JDBC work using a borrowed connection. */
+  @FunctionalInterface
+  public interface SqlFunction<T> {
+    T apply(Connection connection) throws SQLException;
+  }
+
+  private final DataSource dataSource;
+  private final Semaphore permits;
+  private final ExecutorService executor;
+  private final boolean virtualThreads;
+
+  /** Creates an executor allowing as many concurrent units as the pool has connections. */
+  public AsyncJdbcExecutor(PooledDataSource dataSource) {
+    this(dataSource, dataSource.getMaxSize());
+  }
+
+  public AsyncJdbcExecutor(DataSource dataSource, int maxConcurrency) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("Invalid max concurrency : " + maxConcurrency);
+    }
+    this.dataSource = dataSource;
+    this.permits = new Semaphore(maxConcurrency);
+    ExecutorService virtualExecutor = newVirtualThreadExecutor();
+    this.virtualThreads = virtualExecutor != null;
+    this.executor =
+        virtualThreads
+            ? virtualExecutor
+            : Executors.newFixedThreadPool(
+                maxConcurrency,
+                runnable -> {
+                  Thread thread = new Thread(runnable, "AsyncJdbcExecutor-worker");
+                  thread.setDaemon(true);
+                  return thread;
+                });
+  }
+
+  /** Returns whether the units run on virtual threads. */
+  public boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /** Runs the unit with a borrowed connection once fewer than the max concurrent units run. */
+  public <T> CompletableFuture<T> submit(SqlFunction<T> work) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      executor.execute(() -> run(work, future));
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(new SQLException("Executor is closed", e));
+    }
+    return future;
+  }
+
+  private <T> void run(SqlFunction<T> work, CompletableFuture<T> future) {
+    if (future.isDone()) {
+      // Cancelled while waiting
+      return;
+    }
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(e);
+      return;
+    }
+    T result = null;
+    Throwable failure = null;
+    try {
+      if (future.isDone()) {
+        // Cancelled while waiting for a permit
+        return;
+      }
+      try (Connection connection = dataSource.getConnection()) {
+        result = work.apply(connection);
+      } catch (SQLException | RuntimeException | Error e) {
+        failure = e;
+      }
+    } finally {
+      permits.release();
+    }
+    // Completes once the connection and the permit are released, so the dependent stages which
+    // run on this thread do not hold them
+    if (failure != null) {
+      future.completeExceptionally(failure);
+    } else {
+      future.complete(result);
+    }
+  }
+
+  /** Stops accepting units, after which the submitted units still complete. */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  // Returns Executors.newVirtualThreadPerTaskExecutor() if the JDK has virtual threads
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (InvocationTargetException | IllegalAccessException e) {
+      // Virtual threads are a preview feature which is not enabled
+      logger.log(Level.FINE, "Virtual threads are not available", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+/**
+ * This class writes rows with one SQL statement in batches, which are sent with {@link
+ * PreparedStatement#executeBatch()} once {@code batchSize} rows are pending or the oldest pending
+ * row has waited for {@code maxDelay}.
+ *
+ * <p>Writing rows one at a time costs a round trip to the database per row, a batch costs one per
+ * batch. The rows are kept in memory until they are flushed, so a connection is only borrowed from
+ * the data source for the flush, which runs in one transaction with the statement prepared by the
+ * connection, and cached by it if the data source is a {@link PooledDataSource}. A background
+ * thread flushes the rows which have waited for {@code maxDelay}, and an exception of such a flush
+ * is thrown by the next call of the writer. The rows of a failed batch are not written. Writers
+ * are thread-safe, and batches are flushed in the order they were filled.
+ */
+public final class BatchWriter implements AutoCloseable {
+
+  private final DataSource dataSource;
+  private final String sql;
+  private final int batchSize;
+  private final long maxDelayNanos;
+  private final ScheduledExecutorService flusher;
+  private final Object flushLock = new Object();
+
+  private List<Object[]> pending;
+  private long firstPendingNanos;
+  private SQLException failure;
+  private boolean closed;
+  private long writtenCount;
+
+  public BatchWriter(DataSource dataSource, String sql, int batchSize, Duration maxDelay) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Invalid batch size : " + batchSize);
+    } else if (maxDelay.isNegative() || maxDelay.isZero()) {
+      throw new IllegalArgumentException("Invalid max delay : " + maxDelay);
+    }
+    this.dataSource = dataSource;
+    this.sql = sql;
+    this.batchSize = batchSize;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.pending = new ArrayList<>(batchSize);
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "BatchWriter-flusher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long period = Math.max(maxDelayNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+    flusher.scheduleAtFixedRate(this::flushDue, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Adds a row of the values of the statement parameters, and flushes the batch if it is full. The
+   * array must not be changed afterwards, as it is kept until the row is flushed.
+   */
+  public void write(Object... values) throws SQLException {
+    boolean full;
+    synchronized (this) {
+      checkUsable();
+      if (pending.isEmpty()) {
+        firstPendingNanos = System.nanoTime();
+      }
+      pending.add(values);
+      full = pending.size() >= batchSize;
+    }
+    if (full) {
+      flushPending();
+    }
+  }
+
+  /** Writes the pending rows. */
+  public void flush() throws SQLException {
+    synchronized (this) {
+      checkUsable();
+    }
+    flushPending();
+  }
+
+  /** Returns the number of rows written to the database. */
+  public synchronized long getWrittenCount() {
+    return writtenCount;
+  }
+
+  /**
+   * Stops the background flushes, waiting for a running one to complete, and writes the pending
+   * rows.
+   */
+  @Override
+  public void close() throws SQLException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      // The pending rows are still written below, as the running flush holds the flush lock
+      Thread.currentThread().interrupt();
+    }
+    flushPending();
+    synchronized (this) {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  private void checkUsable() throws SQLException {
+    if (failure != null) {
+      SQLException exception = failure;
+      failure = null;
+      throw exception;
+    } else if (closed) {
+      throw new SQLException("Writer is closed : " + sql);
+    }
+  }
+
+  private List<Object[]> takePending() {
+    List<Object[]> batch = pending;
+    pending = new ArrayList<>(batchSize);
+    return batch;
+  }
+
+  // Takes the pending rows while holding the flush lock, so that the batches are executed in the
+  // order they were taken
+  private void flushPending() throws SQLException {
+    synchronized (flushLock) {
+      List<Object[]> batch;
+      synchronized (this) {
+        batch = takePending();
+      }
+      execute(batch);
+    }
+  }
+
+  // Flushes the pending rows if the oldest one has waited for the max delay
+  private void flushDue() {
+    synchronized (flushLock) {
+      List<Object[]> batch;
+      synchronized (this) {
+        if (pending.isEmpty() || System.nanoTime() - firstPendingNanos < maxDelayNanos) {
+          return;
+        }
+        batch = takePending();
+      }
+      try {
+        execute(batch);
+      } catch (SQLException e) {
+        synchronized (this) {
+          failure = e;
+        }
+      }
+    }
+  }
+
+  // Must be called while holding the flush lock
+  private void execute(List<Object[]> batch) throws SQLException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      SQLException exception = null;
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (Object[] row : batch) {
+          for (int i = 0; i < row.length; i++) {
+            statement.setObject(i + 1, row[i]);
+          }
+          statement.addBatch();
+        }
+        statement.executeBatch();
+        connection.commit();
+      } catch (SQLException e) {
+        exception = e;
+        try {
+          connection.rollback();
+        } catch (SQLException rollbackFailure) {
+          exception.addSuppressed(rollbackFailure);
+        }
+      }
+      try {
+        connection.setAutoCommit(autoCommit);
+      } catch (SQLException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+      if (exception != null) {
+        throw exception;
+      }
+    }
+    synchronized (this) {
+      writtenCount += batch.size();
+    }
+  }
+}
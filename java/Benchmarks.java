@@ -0,0 +1,1986 @@
+package com.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.spec.X509EncodedKeySpec;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.text.NumberFormat;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * This class contains the micro benchmarks of the performance oriented classes used by the
+ * examples in {@link DesignPatterns}.
+ *
+ * <p>Every benchmark is warmed up before it is measured, and reports the throughput together with
+ * the bytes allocated per operation by the measuring thread. The numbers are only indicative, as
+ * there is no benchmark harness taking care of forks, dead code elimination etc.
+ *
+ * <p>The main method has the responsibility to run all the benchmarks.
+ */
+public class Benchmarks {
+
+  private static final com.sun.management.ThreadMXBean threadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static final int WARMUP_ROUNDS = 3;
+
+  // The byte offsets of the fields of the off-heap trade records, and their size
+  private static final int TRADE_PRICE = 0;
+  private static final int TRADE_QUANTITY = 8;
+  private static final int TRADE_SIZE = 16;
+
+  // Keeps the results of the benchmarked operations reachable
+  static volatile Object sink;
+
+  // Runs the operation after warming it up and prints the throughput and allocation rate
+  static void measure(String name, int operations, IntConsumer operation) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      for (int i = 0; i < operations; i++) {
+        operation.accept(i);
+      }
+    }
+
+    long bytesBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      operation.accept(i);
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = allocatedBytes() - bytesBefore;
+
+    report(name, operations, elapsed, bytes);
+  }
+
+  // Runs the operation on the given number of threads at once and prints the total throughput and
+  // the allocation rate of the threads
+  static void measureConcurrent(String name, int threads, int operations, IntConsumer operation) {
+    measure(name + " (warmup)", operations, operation);
+
+    CountDownLatch start = new CountDownLatch(1);
+    LongAdder bytes = new LongAdder();
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                long bytesBefore = allocatedBytes();
+                for (int i = 0; i < operations; i++) {
+                  operation.accept(i);
+                }
+                bytes.add(allocatedBytes() - bytesBefore);
+              });
+      worker.start();
+      workers.add(worker);
+    }
+
+    long startNanos = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    long elapsed = System.nanoTime() - startNanos;
+    report(name + " (" + threads + " threads)", (long) threads * operations, elapsed, bytes.sum());
+  }
+
+  static void report(String name, long operations, long elapsedNanos, long bytes) {
+    System.out.printf(
+        "%-60s %,15.0f ops/s %,12.1f B/op%n",
+        name, operations * 1e9 / elapsedNanos, (double) bytes / operations);
+  }
+
+  static long allocatedBytes() {
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // AsyncHandler - Cost of publishing a record compared to a synchronous handler
+  public static void asyncHandlerBenchmark() {
+    LogRecord record = new LogRecord(Level.INFO, "Benchmark message = {0}");
+    record.setParameters(new Object[] {List.of("A", "B", "C")});
+    record.setSourceClassName(Benchmarks.class.getName());
+    record.setSourceMethodName("asyncHandlerBenchmark");
+
+    Handler syncHandler = new StreamHandler(OutputStream.nullOutputStream(), new SimpleFormatter());
+    measure("StreamHandler.publish", 200_000, i -> syncHandler.publish(record));
+    measurePublishLatency("StreamHandler.publish", syncHandler, record);
+    syncHandler.close();
+
+    // The latency paid by the logging thread while the ring buffer has free slots
+    for (AsyncHandler.WaitStrategy waitStrategy : AsyncHandler.WaitStrategy.values()) {
+      Handler delegate =
+          new StreamHandler(OutputStream.nullOutputStream(), new SimpleFormatter());
+      AsyncHandler asyncHandler =
+          new AsyncHandler(delegate, 1 << 16, waitStrategy, AsyncHandler.OverflowPolicy.BLOCK);
+      measurePublishLatency(
+          "AsyncHandler.publish (" + waitStrategy + ", unsaturated)", asyncHandler, record);
+      asyncHandler.close();
+    }
+
+    // Every published record is delivered, so the throughput is the one of the delegate
+    for (AsyncHandler.WaitStrategy waitStrategy : AsyncHandler.WaitStrategy.values()) {
+      Handler delegate =
+          new StreamHandler(OutputStream.nullOutputStream(), new SimpleFormatter());
+      AsyncHandler asyncHandler =
+          new AsyncHandler(delegate, 1 << 16, waitStrategy, AsyncHandler.OverflowPolicy.BLOCK);
+      measure(
+          "AsyncHandler.publish (" + waitStrategy + ", BLOCK)",
+          200_000,
+          i -> asyncHandler.publish(record));
+      asyncHandler.flush();
+      if (asyncHandler.getDroppedCount() != 0) {
+        throw new IllegalStateException(
+            "AsyncHandler dropped records : " + asyncHandler.getDroppedCount());
+      }
+      asyncHandler.close();
+    }
+
+    // Only the publishing cost, the records which do not fit in the ring buffer are dropped
+    Handler delegate = new StreamHandler(OutputStream.nullOutputStream(), new SimpleFormatter());
+    AsyncHandler droppingHandler =
+        new AsyncHandler(
+            delegate,
+            1 << 16,
+            AsyncHandler.WaitStrategy.PARK,
+            AsyncHandler.OverflowPolicy.DROP_AND_COUNT);
+    measure(
+        "AsyncHandler.publish (PARK, DROP_AND_COUNT)",
+        200_000,
+        i -> droppingHandler.publish(record));
+    droppingHandler.flush();
+    System.out.printf(
+        "%-60s %,15d dropped%n",
+        "AsyncHandler (PARK, DROP_AND_COUNT)",
+        droppingHandler.getDroppedCount());
+    droppingHandler.close();
+  }
+
+  // Prints the mean and 99th percentile time of single calls, in rounds of fewer records than the
+  // ring buffer has slots, flushing the handler between the rounds
+  private static void measurePublishLatency(String name, Handler handler, LogRecord record) {
+    long[] nanos = new long[10_000];
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      for (int i = 0; i < nanos.length; i++) {
+        long start = System.nanoTime();
+        handler.publish(record);
+        nanos[i] = System.nanoTime() - start;
+      }
+      handler.flush();
+    }
+    long total = 0;
+    for (long callNanos : nanos) {
+      total += callNanos;
+    }
+    Arrays.sort(nanos);
+    System.out.printf(
+        "%-60s %,15d ns/call %,9d ns p99%n",
+        name,
+        total / nanos.length,
+        nanos[nanos.length * 99 / 100]);
+  }
+
+  // LogFormatter - Formatting throughput compared to the String.format based layout
+  public static void logFormatterBenchmark() {
+    LogRecord record = new LogRecord(Level.INFO, "Benchmark message");
+    record.setSourceClassName(Benchmarks.class.getName());
+
+    Formatter stringFormatFormatter =
+        new SimpleFormatter() {
+          @Override
+          public String format(LogRecord logRecord) {
+            return String.format(
+                "%1$tF %1$tT.%1$tL %2$s %3$s %4$s%n",
+                logRecord.getMillis(),
+                logRecord.getLevel().getName(),
+                logRecord.getSourceClassName(),
+                logRecord.getMessage());
+          }
+        };
+    measure("String.format layout", 200_000, i -> stringFormatFormatter.format(record));
+
+    LogFormatter logFormatter = new LogFormatter();
+    measure("LogFormatter.format", 200_000, i -> logFormatter.format(record));
+    measure("LogFormatter.formatToBuffer", 200_000, i -> logFormatter.formatToBuffer(record));
+  }
+
+  // LazyLogger - Filtered calls must neither build the message nor allocate
+  public static void lazyLoggerBenchmark() {
+    Logger logger = Logger.getLogger(Benchmarks.class.getName() + ".lazy");
+    logger.setUseParentHandlers(false);
+    LazyLogger log = new LazyLogger(logger);
+    log.setLevel(Level.WARNING);
+    List<String> parameter = List.of("A", "B", "C");
+
+    measure(
+        "Logger.info with concatenation (filtered)",
+        1_000_000,
+        i -> logger.info("Benchmark message = " + parameter));
+    measure(
+        "LazyLogger.info with parameter (filtered)",
+        1_000_000,
+        i -> log.info("Benchmark message = {0}", parameter));
+
+    long bytes = 0;
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      bytes = filteredLogAllocations(log, parameter);
+    }
+    if (bytes > 0) {
+      throw new IllegalStateException("Filtered LazyLogger calls allocated " + bytes + " bytes");
+    }
+    System.out.printf("%-60s %,15d bytes allocated%n", "LazyLogger filtered calls", bytes);
+  }
+
+  private static long filteredLogAllocations(LazyLogger log, Object parameter) {
+    long bytesBefore = allocatedBytes();
+    for (int i = 0; i < 1_000_000; i++) {
+      log.info("Benchmark message = {0}", parameter);
+      log.info("Benchmark message = {0} {1}", parameter, Boolean.TRUE);
+    }
+    return allocatedBytes() - bytesBefore;
+  }
+
+  // MappedFileHandler - Write throughput compared to FileHandler
+  public static void mappedFileHandlerBenchmark() throws IOException {
+    Path directory = Files.createTempDirectory("benchmarks");
+    LogRecord record = new LogRecord(Level.INFO, "Benchmark message = {0}");
+    record.setParameters(new Object[] {42});
+    record.setSourceClassName(Benchmarks.class.getName());
+
+    FileHandler fileHandler = new FileHandler(directory.resolve("file-handler.log").toString());
+    fileHandler.setFormatter(new LogFormatter());
+    measure("FileHandler.publish", 100_000, i -> fileHandler.publish(record));
+    fileHandler.close();
+
+    MappedFileHandler mappedFileHandler =
+        new MappedFileHandler(directory, "mapped", 64 << 20, 1024, Duration.ofMillis(100));
+    measure("MappedFileHandler.publish", 100_000, i -> mappedFileHandler.publish(record));
+    mappedFileHandler.close();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  // BinaryLogFormat - Encoding cost and size compared to the text layout encoded as UTF-8
+  public static void binaryLogFormatBenchmark() {
+    LogRecord record = new LogRecord(Level.INFO, "Benchmark message = {0} after {1} retries");
+    record.setParameters(new Object[] {"connection refused", 3});
+    record.setLoggerName(Benchmarks.class.getName());
+    record.setSourceClassName(Benchmarks.class.getName());
+
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+    CharsetEncoder utf8Encoder = StandardCharsets.UTF_8.newEncoder();
+    LogFormatter logFormatter = new LogFormatter();
+    measure(
+        "LogFormatter layout encoded as UTF-8",
+        500_000,
+        i -> {
+          if (buffer.remaining() < 1024) {
+            buffer.clear();
+          }
+          utf8Encoder.reset();
+          utf8Encoder.encode(CharBuffer.wrap(logFormatter.formatToBuffer(record)), buffer, true);
+        });
+    buffer.clear();
+    utf8Encoder.encode(CharBuffer.wrap(logFormatter.formatToBuffer(record)), buffer, true);
+    int textBytes = buffer.position();
+
+    BinaryLogFormat.Encoder binaryEncoder = new BinaryLogFormat.Encoder();
+    measure(
+        "BinaryLogFormat.Encoder.encode",
+        500_000,
+        i -> {
+          if (buffer.remaining() < 1024) {
+            buffer.clear();
+            binaryEncoder.reset();
+          }
+          binaryEncoder.encode(record, buffer);
+        });
+    buffer.clear();
+    binaryEncoder.encode(record, buffer);
+    int firstBytes = buffer.position();
+    binaryEncoder.encode(record, buffer);
+    int binaryBytes = buffer.position() - firstBytes;
+
+    System.out.printf(
+        "%-60s %,15d text B/record %,5d binary B/record%n", "", textBytes, binaryBytes);
+  }
+
+  // SamplingFilter - Cost of the per call site sampling and rate limiting
+  public static void samplingFilterBenchmark() {
+    LogRecord record = new LogRecord(Level.INFO, "Benchmark message = {0}");
+    record.setLoggerName(Benchmarks.class.getName() + ".sampling");
+    Logger.getLogger(record.getLoggerName()).setUseParentHandlers(false);
+
+    try (SamplingFilter filter = new SamplingFilter(1000, 100, 0.5, Duration.ofMillis(100))) {
+      measure("SamplingFilter.isLoggable", 1_000_000, i -> filter.isLoggable(record));
+      measureConcurrent(
+          "SamplingFilter.isLoggable",
+          Runtime.getRuntime().availableProcessors(),
+          1_000_000,
+          i -> filter.isLoggable(record));
+
+      // The suppressed records of the now quiet site are still reported
+      try {
+        Thread.sleep(250);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (filter.getSuppressedCount() > 0) {
+        throw new IllegalStateException(
+            "Suppressed records not summarized : " + filter.getSuppressedCount());
+      }
+    }
+  }
+
+  // KeyFactoryCache - Key decoding with a cached factory compared to a lookup per key
+  public static void keyFactoryCacheBenchmark() throws GeneralSecurityException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    X509EncodedKeySpec keySpec =
+        new X509EncodedKeySpec(generator.generateKeyPair().getPublic().getEncoded());
+
+    measure(
+        "KeyFactory.getInstance",
+        200_000,
+        i -> {
+          try {
+            KeyFactory.getInstance("RSA");
+          } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    KeyFactoryCache cache = KeyFactoryCache.of("RSA");
+    measure("KeyFactoryCache.get", 200_000, i -> cache.get());
+
+    measure(
+        "KeyFactory.getInstance + generatePublic",
+        50_000,
+        i -> {
+          try {
+            KeyFactory.getInstance("RSA").generatePublic(keySpec);
+          } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+
+    measure(
+        "KeyFactoryCache.generatePublic",
+        50_000,
+        i -> {
+          try {
+            cache.generatePublic(keySpec);
+          } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+  }
+
+  // BulkKeyDecoder - Keys decoded per second depending on the parallelism
+  public static void bulkKeyDecoderBenchmark() throws GeneralSecurityException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    List<byte[]> distinctKeys = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      distinctKeys.add(generator.generateKeyPair().getPublic().getEncoded());
+    }
+    List<byte[]> corpus = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      corpus.add(distinctKeys.get(i % distinctKeys.size()));
+    }
+
+    KeyFactoryCache cache = KeyFactoryCache.of("RSA");
+    for (int parallelism = 1;
+        parallelism <= Runtime.getRuntime().availableProcessors();
+        parallelism *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      BulkKeyDecoder decoder = new BulkKeyDecoder(cache, pool);
+      for (int round = 0; round < WARMUP_ROUNDS; round++) {
+        decoder.decodePublic(corpus);
+      }
+      long bytesBefore = allocatedBytes();
+      long start = System.nanoTime();
+      decoder.decodePublic(corpus);
+      long elapsed = System.nanoTime() - start;
+      report(
+          "BulkKeyDecoder.decodePublic (parallelism " + parallelism + ")",
+          corpus.size(),
+          elapsed,
+          allocatedBytes() - bytesBefore);
+      pool.shutdown();
+    }
+  }
+
+  // FactoryRegistry - Creating products by key compared to new, reflection and JCA-style lookup
+  public static void factoryRegistryBenchmark() {
+    List<Class<?>> types =
+        List.of(
+            ArrayList.class,
+            LinkedList.class,
+            HashMap.class,
+            TreeMap.class,
+            HashSet.class,
+            TreeSet.class,
+            ArrayDeque.class,
+            StringBuilder.class);
+    FactoryRegistry.Builder<String, Object> builder = FactoryRegistry.builder();
+    Map<String, String> classNames = new HashMap<>();
+    for (Class<?> type : types) {
+      builder.register(type.getSimpleName(), type);
+      classNames.put(type.getSimpleName(), type.getName());
+    }
+    FactoryRegistry<String, Object> registry = builder.build();
+
+    measure("new ArrayDeque", 1_000_000, i -> sink = new ArrayDeque<>());
+    measure("FactoryRegistry.create(key)", 1_000_000, i -> sink = registry.create("ArrayDeque"));
+    int index = registry.indexOf("ArrayDeque");
+    measure("FactoryRegistry.create(index)", 1_000_000, i -> sink = registry.create(index));
+
+    Map<String, Constructor<?>> constructors = new HashMap<>();
+    for (Class<?> type : types) {
+      try {
+        constructors.put(type.getSimpleName(), type.getConstructor());
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    measure(
+        "Constructor.newInstance",
+        1_000_000,
+        i -> {
+          try {
+            sink = constructors.get("ArrayDeque").newInstance();
+          } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    measure(
+        "Class.forName + newInstance (JCA-style)",
+        1_000_000,
+        i -> {
+          try {
+            sink = Class.forName(classNames.get("ArrayDeque")).getConstructor().newInstance();
+          } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+  }
+
+  // NumberFormats - Formatting with cached per-thread formats compared to building them per call
+  public static void numberFormatsBenchmark() {
+    int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    measureConcurrent(
+        "NumberFormat.getCurrencyInstance().format",
+        threads,
+        200_000,
+        i -> sink = NumberFormat.getCurrencyInstance().format(i / 100.0));
+    measureConcurrent(
+        "NumberFormats.currency().format",
+        threads,
+        200_000,
+        i -> sink = NumberFormats.currency().format(i / 100.0));
+    measureConcurrent(
+        "NumberFormat.getPercentInstance().format",
+        threads,
+        200_000,
+        i -> sink = NumberFormat.getPercentInstance().format(i / 1000.0));
+    measureConcurrent(
+        "NumberFormats.percent().format",
+        threads,
+        200_000,
+        i -> sink = NumberFormats.percent().format(i / 1000.0));
+  }
+
+  // FixedPointFormatter - Output must match NumberFormat for every locale, then throughput
+  public static void fixedPointFormatterBenchmark() {
+    List<Locale> locales =
+        List.of(
+            Locale.US,
+            Locale.UK,
+            Locale.GERMANY,
+            Locale.FRANCE,
+            Locale.ITALY,
+            Locale.JAPAN,
+            new Locale("de", "CH"),
+            new Locale("en", "IN"),
+            new Locale("hi", "IN"),
+            new Locale("pt", "BR"),
+            new Locale("sv", "SE"),
+            new Locale("ar", "EG"));
+    Random random = new Random(42);
+    long[] values = new long[20_000];
+    for (int i = 0; i < values.length; i++) {
+      long magnitude = random.nextLong() >>> random.nextInt(64);
+      values[i] = random.nextBoolean() ? -magnitude : magnitude;
+    }
+    values[0] = 0;
+    values[1] = Long.MAX_VALUE;
+    values[2] = -Long.MAX_VALUE;
+    // The percent multiplier must not overflow
+    long[] ratios = Arrays.stream(values).map(value -> value / 100).toArray();
+
+    for (Locale locale : locales) {
+      FixedPointFormatter currencyFormatter = FixedPointFormatter.currency(locale);
+      NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(locale);
+      int currencyScale = Math.max(currencyFormat.getCurrency().getDefaultFractionDigits(), 0);
+      verifyFormatter(currencyFormatter, currencyFormat, currencyScale, values);
+      for (int scale = 0; scale <= 6; scale++) {
+        FixedPointFormatter percentFormatter = FixedPointFormatter.percent(locale, scale);
+        verifyFormatter(percentFormatter, NumberFormat.getPercentInstance(locale), scale, ratios);
+      }
+    }
+    System.out.printf(
+        "%-60s %,15d values match NumberFormat%n",
+        "FixedPointFormatter (" + locales.size() + " locales)",
+        (long) values.length * locales.size() * 8);
+
+    NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.GERMANY);
+    measure(
+        "NumberFormat.format(BigDecimal)",
+        500_000,
+        i -> sink = currencyFormat.format(BigDecimal.valueOf(values[i % values.length], 2)));
+    FixedPointFormatter formatter = FixedPointFormatter.currency(Locale.GERMANY);
+    char[] chars = new char[formatter.maxLength()];
+    measure(
+        "FixedPointFormatter.format(long, char[], int)",
+        500_000,
+        i -> formatter.format(values[i % values.length], chars, 0));
+    ByteBuffer bytes = ByteBuffer.allocate(formatter.maxLength() * 3);
+    measure(
+        "FixedPointFormatter.format(long, ByteBuffer)",
+        500_000,
+        i -> formatter.format(values[i % values.length], bytes.clear()));
+  }
+
+  private static void verifyFormatter(
+      FixedPointFormatter formatter, NumberFormat format, int scale, long[] values) {
+    char[] chars = new char[formatter.maxLength()];
+    ByteBuffer bytes = ByteBuffer.allocate(formatter.maxLength() * 4);
+    for (long value : values) {
+      String expected = format.format(BigDecimal.valueOf(value, scale));
+      String actual = new String(chars, 0, formatter.format(value, chars, 0));
+      formatter.format(value, bytes.clear());
+      String encoded = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+      if (!expected.equals(actual) || !expected.equals(encoded)) {
+        throw new IllegalStateException(
+            "Expected " + expected + " but got " + actual + " for " + value + " scale " + scale);
+      }
+    }
+  }
+
+  // ColumnFormatter - Formatting a whole column compared to formatting value by value
+  public static void columnFormatterBenchmark() {
+    Random random = new Random(42);
+    double[] doubles = new double[100_000];
+    long[] longs = new long[doubles.length];
+    for (int i = 0; i < doubles.length; i++) {
+      longs[i] = random.nextInt(100_000_000);
+      doubles[i] = longs[i] / 100.0;
+    }
+
+    // Random doubles and ties of every format fall back to the format
+    double[] others = new double[doubles.length];
+    for (int i = 0; i < others.length; i++) {
+      others[i] = i % 2 == 0 ? random.nextGaussian() * 1e6 : (random.nextInt(2000) - 1000) / 2000.0;
+    }
+    NumberFormat format = NumberFormat.getCurrencyInstance(Locale.US);
+    ColumnFormatter.Column expected;
+    ForkJoinPool checkPool = new ForkJoinPool(2);
+    try {
+      for (NumberFormat style :
+          List.of(
+              NumberFormat.getCurrencyInstance(Locale.US),
+              NumberFormat.getPercentInstance(Locale.GERMANY),
+              NumberFormat.getNumberInstance(Locale.FRANCE))) {
+        ColumnFormatter formatter = new ColumnFormatter(style, checkPool);
+        for (double[] column : List.of(doubles, others)) {
+          ColumnFormatter.Column formatted = formatter.format(column);
+          for (int i = 0; i < column.length; i++) {
+            if (!formatted.get(i).equals(style.format(column[i]))) {
+              throw new IllegalStateException(column[i] + " formatted as " + formatted.get(i));
+            }
+          }
+        }
+      }
+
+      expected = new ColumnFormatter(format, checkPool).format(doubles);
+      for (int i = 0; i < doubles.length; i++) {
+        if (!expected.get(i).equals(format.format(BigDecimal.valueOf(longs[i], 2)))) {
+          throw new IllegalStateException("Column value " + i + " = " + expected.get(i));
+        }
+      }
+    } finally {
+      checkPool.shutdown();
+    }
+
+    measure(
+        "NumberFormat.format(double) per value",
+        10,
+        round -> {
+          String[] column = new String[doubles.length];
+          for (int i = 0; i < doubles.length; i++) {
+            column[i] = format.format(doubles[i]);
+          }
+          sink = column;
+        });
+    for (int parallelism = 1;
+        parallelism <= Runtime.getRuntime().availableProcessors();
+        parallelism *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        ColumnFormatter formatter = new ColumnFormatter(format, pool);
+        if (!Arrays.equals(formatter.format(longs, 2).offsets(), expected.offsets())) {
+          throw new IllegalStateException("Fixed-point column differs from double column");
+        }
+        measure(
+            "ColumnFormatter.format(double[]) (parallelism " + parallelism + ")",
+            10,
+            round -> sink = formatter.format(doubles));
+        measure(
+            "ColumnFormatter.format(long[], 2) (parallelism " + parallelism + ")",
+            10,
+            round -> sink = formatter.format(longs, 2));
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  // StringBuilders - Building messages on many threads with pooled builders compared to new ones
+  public static void stringBuildersBenchmark() {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    measureGarbageCollections(
+        "new StringBuilder",
+        () ->
+            measureConcurrent(
+                "new StringBuilder",
+                threads,
+                500_000,
+                i -> sink = appendMessage(new StringBuilder(), i).toString()));
+    measureGarbageCollections(
+        "StringBuilders.acquire",
+        () ->
+            measureConcurrent(
+                "StringBuilders.acquire",
+                threads,
+                500_000,
+                i -> {
+                  try (StringBuilders.Lease lease = StringBuilders.acquire()) {
+                    sink = appendMessage(lease.builder(), i).toString();
+                  }
+                }));
+    measureGarbageCollections(
+        "StringBuilders.build",
+        () ->
+            measureConcurrent(
+                "StringBuilders.build",
+                threads,
+                500_000,
+                i -> sink = StringBuilders.build(builder -> appendMessage(builder, i))));
+  }
+
+  private static StringBuilder appendMessage(StringBuilder builder, int i) {
+    return builder
+        .append("Message ")
+        .append(i)
+        .append(" of ")
+        .append(Thread.currentThread().getName());
+  }
+
+  // Runs the benchmark and prints the number of collections and the collection time it caused
+  private static void measureGarbageCollections(String name, Runnable benchmark) {
+    long countBefore = 0;
+    long timeBefore = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      countBefore += collector.getCollectionCount();
+      timeBefore += collector.getCollectionTime();
+    }
+    benchmark.run();
+    long count = -countBefore;
+    long time = -timeBefore;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += collector.getCollectionCount();
+      time += collector.getCollectionTime();
+    }
+    System.out.printf("%-60s %,15d GCs %,12d ms%n", name + " collections", count, time);
+  }
+
+  // Utf8Builder - Building and writing UTF-8 output compared to StringBuilder and String.getBytes
+  public static void utf8BuilderBenchmark() throws IOException {
+    String[] words = {
+      "Hello", "Gr\u00FC\u00DFe", "\u041F\u0440\u0438", "\u3053\u3093", "\uD83D\uDE00", "\uD83D"
+    };
+    StringBuilder expected = new StringBuilder();
+    Utf8Builder actual = new Utf8Builder(16, false);
+    for (int i = 0; i < 1000; i++) {
+      double ratio = i / 8.0;
+      expected.append(words[i % words.length]).append(' ').append(i * 7919L).append(' ');
+      expected.append(ratio).append(' ').append(-i).append(i % 3 == 0).append('\n');
+      actual.append(words[i % words.length]).append(' ').append(i * 7919L).append(' ');
+      actual.append(ratio).append(' ').append(-i).append(i % 3 == 0).append('\n');
+    }
+    Random random = new Random(42);
+    for (int i = 0; i < 2_000_000; i++) {
+      double value = i % 2 == 0 ? (i - 1_000_000) / 10_000.0 : random.nextGaussian() * 1e5;
+      expected.append(value).append(' ');
+      actual.append(value).append(' ');
+    }
+    byte[] expectedBytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+    if (!Arrays.equals(actual.toByteArray(), expectedBytes)) {
+      throw new IllegalStateException("Utf8Builder output differs from String.getBytes");
+    }
+
+    WritableByteChannel channel = Channels.newChannel(OutputStream.nullOutputStream());
+    StringBuilder stringBuilder = new StringBuilder(256);
+    measure(
+        "StringBuilder + String.getBytes + write",
+        2_000_000,
+        i -> {
+          stringBuilder.setLength(0);
+          stringBuilder.append("Order ").append(i).append(' ').append(words[i % words.length]);
+          stringBuilder.append(" total = ").append(i * 0.25).append('\n');
+          try {
+            channel.write(
+                ByteBuffer.wrap(stringBuilder.toString().getBytes(StandardCharsets.UTF_8)));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    for (boolean direct : new boolean[] {false, true}) {
+      Utf8Builder builder = new Utf8Builder(256, direct);
+      measure(
+          "Utf8Builder.writeTo (" + (direct ? "direct" : "heap") + ")",
+          2_000_000,
+          i -> {
+            builder.clear();
+            builder.append("Order ").append(i).append(' ').append(words[i % words.length]);
+            builder.append(" total = ").append(i * 0.25).append('\n');
+            try {
+              builder.writeTo(channel);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    }
+  }
+
+  // RopeBuilder - Assembling and writing a large text compared to StringBuilder. The size in MB
+  // is set with -Dbenchmarks.ropeMegabytes, e.g. 1024 with -Xmx6g for the 1 GB run
+  public static void ropeBuilderBenchmark() throws IOException {
+    long chars = Long.getLong("benchmarks.ropeMegabytes", 64) << 20;
+    String line = "2024-01-01 00:00:00.000 INFO com.example.Benchmarks Rope line = ";
+    int lines = (int) (chars / (line.length() + 8));
+    WritableByteChannel channel = Channels.newChannel(OutputStream.nullOutputStream());
+
+    RopeBuilder sample = new RopeBuilder(64);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      String text = i % 7 == 0 ? "\u00E9t\u00E9 \u20AC \uD83D\uDE00" + i : line + i;
+      sample.append(text).append('\n');
+      expected.append(text).append('\n');
+    }
+    sample.append(sample.subSequence(100, 5000)).append(sample);
+    expected.append(expected, 100, 5000).append(expected.toString());
+    if (!sample.toString().equals(expected.toString())
+        || !sample.subSequence(10, 20_000).toString().equals(expected.substring(10, 20_000))) {
+      throw new IllegalStateException("RopeBuilder differs from StringBuilder");
+    }
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    sample.writeTo(Channels.newChannel(encoded), StandardCharsets.UTF_8);
+    StringWriter written = new StringWriter();
+    sample.writeTo(written);
+    if (!Arrays.equals(encoded.toByteArray(), expected.toString().getBytes(StandardCharsets.UTF_8))
+        || !written.toString().equals(expected.toString())) {
+      throw new IllegalStateException("RopeBuilder writes differ from StringBuilder");
+    }
+
+    measurePeakHeap(
+        "StringBuilder + String.getBytes (" + (chars >> 20) + " MB)",
+        () -> {
+          StringBuilder builder = new StringBuilder();
+          for (int i = 0; i < lines; i++) {
+            builder.append(line).append(i).append('\n');
+          }
+          channel.write(ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        });
+    measurePeakHeap(
+        "RopeBuilder.writeTo (" + (chars >> 20) + " MB)",
+        () -> {
+          // Assembles the text from four parts, as when sections are built separately
+          RopeBuilder rope = new RopeBuilder();
+          for (int part = 0; part < 4; part++) {
+            RopeBuilder section = new RopeBuilder();
+            for (int i = part * lines / 4; i < (part + 1) * lines / 4; i++) {
+              section.append(line).append(i).append('\n');
+            }
+            rope.append(section);
+          }
+          rope.writeTo(channel, StandardCharsets.UTF_8);
+        });
+  }
+
+  @FunctionalInterface
+  private interface IoRunnable {
+    void run() throws IOException;
+  }
+
+  // Runs the task once and prints its time and the peak heap usage of its run. Eden is left out,
+  // its peak is the size the collector gives it and not the memory the task keeps
+  private static void measurePeakHeap(String name, IoRunnable task) throws IOException {
+    System.gc();
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && !pool.getName().contains("Eden")) {
+        pool.resetPeakUsage();
+        heapPools.add(pool);
+      }
+    }
+    long start = System.nanoTime();
+    task.run();
+    long elapsed = System.nanoTime() - start;
+    long peak = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peak += pool.getPeakUsage().getUsed();
+    }
+    System.out.printf(
+        "%-60s %,15d ms %,12d MB peak heap%n", name, elapsed / 1_000_000, peak >> 20);
+  }
+
+  // PersistentVector - Cloning a template list and changing a few elements compared to ArrayList
+  public static void persistentVectorBenchmark() {
+    Random random = new Random(42);
+    List<Integer> expected = new ArrayList<>();
+    PersistentVector<Integer> vector = PersistentVector.empty();
+    PersistentVector.Transient<Integer> transientVector = vector.asTransient();
+    for (int i = 0; i < 200_000; i++) {
+      int operation = random.nextInt(10);
+      if (operation < 6 || expected.isEmpty()) {
+        expected.add(i);
+        vector = vector.plus(i);
+        transientVector.add(i);
+      } else if (operation < 9) {
+        int index = random.nextInt(expected.size());
+        expected.set(index, -i);
+        vector = vector.with(index, -i);
+        transientVector.set(index, -i);
+      } else {
+        expected.remove(expected.size() - 1);
+        vector = vector.pop();
+        transientVector.pop();
+      }
+    }
+    if (!vector.equals(expected) || !transientVector.persistent().equals(expected)) {
+      throw new IllegalStateException("PersistentVector differs from ArrayList");
+    }
+
+    int changes = 8;
+    for (int size = 1_000; size <= 10_000_000; size *= 10) {
+      List<Integer> arrayTemplate = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        arrayTemplate.add(i & 127);
+      }
+      PersistentVector<Integer> vectorTemplate = PersistentVector.copyOf(arrayTemplate);
+      int[] indexes = random.ints(changes, 0, size).toArray();
+      int operations = Math.max(20, Math.min(100_000, 100_000_000 / size));
+
+      measure(
+          "new ArrayList + " + changes + " set (" + size + ")",
+          operations,
+          i -> {
+            List<Integer> clone = new ArrayList<>(arrayTemplate);
+            for (int index : indexes) {
+              clone.set(index, i & 127);
+            }
+            sink = clone;
+          });
+      measure(
+          "PersistentVector " + changes + " with (" + size + ")",
+          operations,
+          i -> {
+            PersistentVector<Integer> clone = vectorTemplate;
+            for (int index : indexes) {
+              clone = clone.with(index, i & 127);
+            }
+            sink = clone;
+          });
+      measure(
+          "PersistentVector.Transient " + changes + " set (" + size + ")",
+          operations,
+          i -> {
+            PersistentVector.Transient<Integer> clone = vectorTemplate.asTransient();
+            for (int index : indexes) {
+              clone.set(index, i & 127);
+            }
+            sink = clone.persistent();
+          });
+    }
+  }
+
+  // LazyCloneList - Cloning a template list which is mostly only read compared to ArrayList
+  public static void lazyCloneListBenchmark() {
+    List<Integer> expected = new ArrayList<>(List.of(1, 2, 3));
+    LazyCloneList<Integer> original = LazyCloneList.copyOf(expected);
+    LazyCloneList<Integer> clone = original.clone();
+    LazyCloneList<Integer> untouched = clone.clone();
+    clone.add(4);
+    clone.set(0, 0);
+    original.remove(1);
+    if (!untouched.equals(expected)
+        || !clone.equals(List.of(0, 2, 3, 4))
+        || !original.equals(List.of(1, 3))
+        || clone.isShared()) {
+      throw new IllegalStateException("LazyCloneList clones are not independent");
+    }
+
+    for (int n = 1_000; n <= 1_000_000; n *= 10) {
+      int size = n;
+      List<Integer> arrayTemplate = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        arrayTemplate.add(i & 127);
+      }
+      LazyCloneList<Integer> lazyTemplate = LazyCloneList.copyOf(arrayTemplate);
+      int operations = Math.max(100, Math.min(100_000, 100_000_000 / size));
+
+      // Nine clones out of ten are only read
+      measure(
+          "new ArrayList, 10% written (" + size + ")",
+          operations,
+          i -> {
+            List<Integer> copy = new ArrayList<>(arrayTemplate);
+            if (i % 10 == 0) {
+              copy.set(i % size, i);
+            }
+            sink = copy.get(size / 2);
+          });
+      measure(
+          "LazyCloneList.clone, 10% written (" + size + ")",
+          operations,
+          i -> {
+            LazyCloneList<Integer> copy = lazyTemplate.clone();
+            if (i % 10 == 0) {
+              copy.set(i % size, i);
+            }
+            sink = copy.get(size / 2);
+          });
+    }
+  }
+
+  // DeepCloner - Deep copy of a prototype graph compared to serialization and reflection
+  public static void deepClonerBenchmark() {
+    Order order = newOrder(20);
+    Order copy = DeepCloner.deepCopy(order);
+    if (copy == order
+        || copy.lines == order.lines
+        || copy.customer.address == order.customer.address
+        || copy.lines.get(1).previous != copy.lines.get(0)
+        || !Arrays.equals(serialize(copy), serialize(order))) {
+      throw new IllegalStateException("DeepCloner copy differs from the original");
+    }
+    Address address = new Address("Main Street", new int[] {1, 2, 3});
+    Address addressCopy = DeepCloner.deepCopy(address);
+    if (addressCopy.numbers == address.numbers
+        || !Arrays.equals(serialize(addressCopy), serialize(address))) {
+      throw new IllegalStateException("DeepCloner copy differs from the original");
+    }
+
+    measure(
+        "ObjectOutputStream + ObjectInputStream (order)",
+        20_000,
+        i -> sink = deserialize(serialize(order)));
+    measure(
+        "Reflection (order)",
+        20_000,
+        i -> sink = reflectiveCopy(order, new IdentityHashMap<>()));
+    measure("DeepCloner (order)", 20_000, i -> sink = DeepCloner.deepCopy(order));
+
+    measure(
+        "Reflection (acyclic address)",
+        1_000_000,
+        i -> sink = reflectiveCopy(address, new IdentityHashMap<>()));
+    measure("DeepCloner (acyclic address)", 1_000_000, i -> sink = DeepCloner.deepCopy(address));
+  }
+
+  private static Order newOrder(int lines) {
+    Order order = new Order();
+    order.customer = new Customer("Jane", new Address("Main Street", new int[] {1, 2}));
+    order.lines = new ArrayList<>();
+    order.tags = new HashMap<>();
+    order.tags.put("priority", List.of("high"));
+    order.tags.put("channel", List.of("web", "mobile"));
+    for (int i = 0; i < lines; i++) {
+      OrderLine line = new OrderLine();
+      line.order = order;
+      line.sku = "SKU-" + i;
+      line.quantity = i + 1;
+      line.price = BigDecimal.valueOf(199 + i, 2);
+      line.previous = i == 0 ? null : order.lines.get(i - 1);
+      order.lines.add(line);
+    }
+    return order;
+  }
+
+  private static byte[] serialize(Object object) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // Copies the graph with Field.get and Field.set, as reflective cloning libraries do
+  private static Object reflectiveCopy(Object value, Map<Object, Object> copies) {
+    if (value == null
+        || value instanceof String
+        || value instanceof Number
+        || value instanceof Enum) {
+      return value;
+    }
+    Object copy = copies.get(value);
+    if (copy != null) {
+      return copy;
+    }
+    try {
+      Class<?> type = value.getClass();
+      if (type == int[].class) {
+        copy = ((int[]) value).clone();
+      } else if (value instanceof List) {
+        List<Object> list = new ArrayList<>();
+        copies.put(value, list);
+        for (Object element : (List<?>) value) {
+          list.add(reflectiveCopy(element, copies));
+        }
+        copy = type == ArrayList.class ? list : List.copyOf(list);
+      } else if (value instanceof Map) {
+        Map<Object, Object> map = new HashMap<>();
+        copies.put(value, map);
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          map.put(reflectiveCopy(entry.getKey(), copies), reflectiveCopy(entry.getValue(), copies));
+        }
+        copy = map;
+      } else {
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        copy = constructor.newInstance();
+        copies.put(value, copy);
+        for (Field field : type.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            field.setAccessible(true);
+            field.set(copy, reflectiveCopy(field.get(value), copies));
+          }
+        }
+      }
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+    copies.put(value, copy);
+    return copy;
+  }
+
+  // The prototype graph of the DeepCloner benchmark, with cycles between the order and its lines
+  private static final class Order implements Serializable {
+    private static final long serialVersionUID = 1L;
+    Customer customer;
+    List<OrderLine> lines;
+    Map<String, List<String>> tags;
+  }
+
+  private static final class OrderLine implements Serializable {
+    private static final long serialVersionUID = 1L;
+    Order order;
+    OrderLine previous;
+    String sku;
+    int quantity;
+    BigDecimal price;
+  }
+
+  private static final class Customer implements Serializable {
+    private static final long serialVersionUID = 1L;
+    String name;
+    Address address;
+
+    Customer() {}
+
+    Customer(String name, Address address) {
+      this.name = name;
+      this.address = address;
+    }
+  }
+
+  // Only reaches strings and int arrays, so its copies need no identity map
+  private static final class Address implements Serializable {
+    private static final long serialVersionUID = 1L;
+    final String street;
+    final int[] numbers;
+
+    Address() {
+      this(null, null);
+    }
+
+    Address(String street, int[] numbers) {
+      this.street = street;
+      this.numbers = numbers;
+    }
+  }
+
+  // PrimitiveLists - Summing array values through a List<Integer> compared to an IntList view
+  public static void primitiveListsBenchmark() {
+    int[] values = new Random(42).ints(10_000, 0, 1_000).toArray();
+    List<Integer> boxedValues = new ArrayList<>();
+    for (int value : values) {
+      boxedValues.add(value);
+    }
+    IntList view = PrimitiveLists.asIntList(values);
+    long expected = Arrays.stream(values).sum();
+    if (view.stream().sum() != expected
+        || !view.boxed().equals(boxedValues)
+        || !view.equals(PrimitiveLists.asIntList(values.clone()))
+        || PrimitiveLists.asIntList(values, 10, 20).getInt(0) != values[10]) {
+      throw new IllegalStateException("IntList view differs from the array");
+    }
+
+    measure(
+        "new ArrayList<Integer> + get loop (10000)",
+        10_000,
+        i -> {
+          List<Integer> list = new ArrayList<>(values.length);
+          for (int value : values) {
+            list.add(value);
+          }
+          long sum = 0;
+          for (int j = 0; j < list.size(); j++) {
+            sum += list.get(j);
+          }
+          sink = sum;
+        });
+    measure(
+        "PrimitiveLists.asIntList + getInt loop (10000)",
+        10_000,
+        i -> {
+          IntList list = PrimitiveLists.asIntList(values);
+          long sum = 0;
+          for (int j = 0; j < list.size(); j++) {
+            sum += list.getInt(j);
+          }
+          sink = sum;
+        });
+    measure(
+        "List<Integer>.stream().mapToInt().sum() (10000)",
+        10_000,
+        i -> sink = boxedValues.stream().mapToInt(Integer::intValue).sum());
+    measure(
+        "IntList.stream().sum() (10000)",
+        10_000,
+        i -> sink = PrimitiveLists.asIntList(values).stream().sum());
+  }
+
+  // OffHeapRecordList - Scanning and collecting records off the heap compared to heap objects
+  public static void offHeapRecordListBenchmark() throws IOException {
+    OffHeapRecordList<OffHeapRecordList.Record> check =
+        OffHeapRecordList.allocate(1_000, TRADE_SIZE, OffHeapRecordList.Record::new);
+    for (int i = 0; i < check.size(); i++) {
+      check.get(i).putDouble(TRADE_PRICE, i * 0.5);
+    }
+    Path file = Files.createTempFile("records", ".bin");
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      OffHeapRecordList<OffHeapRecordList.Record> mapped =
+          OffHeapRecordList.map(
+              channel,
+              FileChannel.MapMode.READ_WRITE,
+              check.size(),
+              TRADE_SIZE,
+              OffHeapRecordList.Record::new);
+      for (int i = 0; i < mapped.size(); i++) {
+        mapped.get(i).putDouble(TRADE_PRICE, check.get(i).getDouble(TRADE_PRICE));
+      }
+      double expected = 1_000 * 999 * 0.25;
+      double[] forEachSum = {0};
+      check.forEachRecord(record -> forEachSum[0] += record.getDouble(TRADE_PRICE));
+      List<OffHeapRecordList.Record> copied = new ArrayList<>(check);
+      if (forEachSum[0] != expected
+          || check.recordStream().mapToDouble(r -> r.getDouble(TRADE_PRICE)).sum() != expected
+          || check.recordStream().parallel().mapToDouble(r -> r.getDouble(TRADE_PRICE)).sum()
+              != expected
+          || mapped.recordStream().mapToDouble(r -> r.getDouble(TRADE_PRICE)).sum() != expected
+          || check.stream().mapToDouble(r -> r.getDouble(TRADE_PRICE)).sum() != expected
+          || copied.get(1).getDouble(TRADE_PRICE) != 0.5
+          || !check.contains(check.get(0))
+          || check.indexOf(check.get(1)) != 1
+          || !check.containsAll(check)
+          || !check.equals(copied)) {
+        throw new IllegalStateException("OffHeapRecordList differs from the written records");
+      }
+    } finally {
+      Files.delete(file);
+    }
+
+    int size = 4_000_000;
+    List<HeapTrade> heapTrades = new ArrayList<>(size);
+    OffHeapRecordList<OffHeapRecordList.Record> offHeapTrades =
+        OffHeapRecordList.allocate(size, TRADE_SIZE, OffHeapRecordList.Record::new);
+    for (int i = 0; i < size; i++) {
+      heapTrades.add(new HeapTrade(i & 1023, i & 7));
+      OffHeapRecordList.Record record = offHeapTrades.get(i);
+      record.putDouble(TRADE_PRICE, i & 1023);
+      record.putInt(TRADE_QUANTITY, i & 7);
+    }
+
+    measure(
+        "List<HeapTrade>.stream() notional (" + size + ")",
+        20,
+        i -> sink = heapTrades.stream().mapToDouble(t -> t.price * t.quantity).sum());
+    measure(
+        "OffHeapRecordList.stream() notional (" + size + ")",
+        20,
+        i ->
+            sink =
+                offHeapTrades.stream()
+                    .mapToDouble(r -> r.getDouble(TRADE_PRICE) * r.getInt(TRADE_QUANTITY))
+                    .sum());
+    measure(
+        "OffHeapRecordList.recordStream() notional (" + size + ")",
+        20,
+        i ->
+            sink =
+                offHeapTrades.recordStream()
+                    .mapToDouble(r -> r.getDouble(TRADE_PRICE) * r.getInt(TRADE_QUANTITY))
+                    .sum());
+    measure(
+        "OffHeapRecordList parallel recordStream() notional (" + size + ")",
+        20,
+        i ->
+            sink =
+                offHeapTrades.recordStream()
+                    .parallel()
+                    .mapToDouble(r -> r.getDouble(TRADE_PRICE) * r.getInt(TRADE_QUANTITY))
+                    .sum());
+
+    // Full collections trace every live heap object, and none of the off-heap records
+    measureGarbageCollections(
+        "System.gc() x5 with List<HeapTrade> live",
+        () -> {
+          for (int i = 0; i < 5; i++) {
+            System.gc();
+          }
+        });
+    sink = heapTrades;
+    heapTrades.clear();
+    measureGarbageCollections(
+        "System.gc() x5 with OffHeapRecordList live",
+        () -> {
+          for (int i = 0; i < 5; i++) {
+            System.gc();
+          }
+        });
+    sink = offHeapTrades;
+  }
+
+  private static final class HeapTrade {
+    final double price;
+    final int quantity;
+
+    HeapTrade(double price, int quantity) {
+      this.price = price;
+      this.quantity = quantity;
+    }
+  }
+
+  // ByteViews - Matching a regex on bytes through a view compared to decoding a String first
+  public static void byteViewsBenchmark() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; text.length() < 64 * 1024; i++) {
+      text.append(i % 3 == 0 ? "POST" : "GET").append(" /page/").append(i).append(' ');
+      text.append(i % 5 == 0 ? 404 : 200).append(" caf\u00E9\n");
+    }
+    byte[] bytes = text.toString().getBytes(StandardCharsets.ISO_8859_1);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    Pattern request = Pattern.compile("(GET|POST) (\\S+) (\\d{3})");
+    int expected = countMatches(request, new String(bytes, StandardCharsets.ISO_8859_1));
+    if (countMatches(request, ByteViews.asCharSequence(bytes, 0, bytes.length)) != expected
+        || countMatches(request, ByteViews.asCharSequence(direct)) != expected
+        || !ByteViews.asCharSequence(direct).subSequence(5, 12).toString().equals(
+            text.substring(5, 12))
+        || !Arrays.equals(ByteViews.asInputStream(direct).readAllBytes(), bytes)
+        || !Arrays.equals(ByteViews.asInputStream(bytes, 0, bytes.length).readAllBytes(), bytes)) {
+      throw new IllegalStateException("ByteViews differ from the decoded String");
+    }
+
+    measure(
+        "new String(bytes) + Matcher.find (64 KB)",
+        2_000,
+        i -> sink = countMatches(request, new String(bytes, StandardCharsets.ISO_8859_1)));
+    measure(
+        "ByteViews.asCharSequence(byte[]) + Matcher.find (64 KB)",
+        2_000,
+        i -> sink = countMatches(request, ByteViews.asCharSequence(bytes, 0, bytes.length)));
+    measure(
+        "decode direct buffer + Matcher.find (64 KB)",
+        2_000,
+        i ->
+            sink =
+                countMatches(request, StandardCharsets.ISO_8859_1.decode(direct.duplicate())));
+    measure(
+        "ByteViews.asCharSequence(direct) + Matcher.find (64 KB)",
+        2_000,
+        i -> sink = countMatches(request, ByteViews.asCharSequence(direct)));
+
+    ByteBuffer destination = ByteBuffer.allocateDirect(bytes.length);
+    measure(
+        "Channels.newChannel(ByteArrayInputStream) (64 KB)",
+        20_000,
+        i -> sink = readFully(Channels.newChannel(new ByteArrayInputStream(bytes)), destination));
+    measure(
+        "ByteViews.asChannel(byte[]) (64 KB)",
+        20_000,
+        i -> sink = readFully(ByteViews.asChannel(bytes, 0, bytes.length), destination));
+  }
+
+  private static int countMatches(Pattern pattern, CharSequence text) {
+    Matcher matcher = pattern.matcher(text);
+    int count = 0;
+    while (matcher.find()) {
+      count++;
+    }
+    return count;
+  }
+
+  private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer destination) {
+    destination.clear();
+    try {
+      while (channel.read(destination) > 0) {
+        // Reads until the end of the channel
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return destination;
+  }
+
+  // PooledDataSource - Borrowing a pooled connection compared to connecting with DriverManager
+  public static void pooledDataSourceBenchmark() throws SQLException {
+    StubDriver driver = StubDriver.register("jdbc:stub:pool", 100_000, 0);
+    String url = "jdbc:stub:pool:test";
+
+    List<LogRecord> leaks = new ArrayList<>();
+    Handler leakHandler =
+        new Handler() {
+          @Override
+          public void publish(LogRecord record) {
+            synchronized (leaks) {
+              leaks.add(record);
+            }
+          }
+
+          @Override
+          public void flush() {}
+
+          @Override
+          public void close() {}
+        };
+    Logger poolLogger = Logger.getLogger(PooledDataSource.class.getName());
+    poolLogger.addHandler(leakHandler);
+    poolLogger.setUseParentHandlers(false);
+    try (PooledDataSource pool =
+        new PooledDataSource(
+            url,
+            new Properties(),
+            2,
+            Duration.ofMillis(50),
+            Duration.ofSeconds(1),
+            Duration.ofMillis(20),
+            0)) {
+      Connection first = pool.getConnection();
+      Connection second = pool.getConnection();
+      boolean timedOut = false;
+      try {
+        pool.getConnection().close();
+      } catch (SQLTransientConnectionException e) {
+        timedOut = true;
+      }
+      String physical = first.toString();
+      first.close();
+      boolean closedRejected = false;
+      try {
+        first.createStatement();
+      } catch (SQLException e) {
+        closedRejected = true;
+      }
+      Connection reused = pool.getConnection();
+      Thread.sleep(100);
+      if (!timedOut
+          || !closedRejected
+          || !reused.toString().equals(physical)
+          || pool.getActiveCount() != 2
+          || driver.connects() != 2
+          || leaks.isEmpty()) {
+        throw new IllegalStateException("PooledDataSource does not pool the connections");
+      }
+      reused.close();
+      second.close();
+      if (pool.getIdleCount() != 2 || pool.getActiveCount() != 0) {
+        throw new IllegalStateException("PooledDataSource did not get the connections back");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      poolLogger.removeHandler(leakHandler);
+    }
+
+    measure(
+        "DriverManager.getConnection + close (100 us connect)",
+        2_000,
+        i -> {
+          try (Connection connection = DriverManager.getConnection(url)) {
+            sink = connection;
+          } catch (SQLException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    try (PooledDataSource pool = new PooledDataSource(url, new Properties(), 2)) {
+      measure(
+          "PooledDataSource.getConnection + close",
+          1_000_000,
+          i -> {
+            try (Connection connection = pool.getConnection()) {
+              sink = connection;
+            } catch (SQLException e) {
+              throw new IllegalStateException(e);
+            }
+          });
+      measureConcurrent(
+          "PooledDataSource.getConnection + close (pool of 2)",
+          4,
+          250_000,
+          i -> {
+            try (Connection connection = pool.getConnection()) {
+              sink = connection;
+            } catch (SQLException e) {
+              throw new IllegalStateException(e);
+            }
+          });
+    }
+  }
+
+  // A JDBC driver of connections which do nothing, opened after a simulated handshake, whose
+  // statements take a simulated round trip to prepare and execute
+  static final class StubDriver implements Driver {
+    private final String prefix;
+    private final long connectNanos;
+    private final long roundTripNanos;
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder prepares = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private StubDriver(String prefix, long connectNanos, long roundTripNanos) {
+      this.prefix = prefix;
+      this.connectNanos = connectNanos;
+      this.roundTripNanos = roundTripNanos;
+    }
+
+    // Registers a driver accepting the URLs starting with the prefix
+    static StubDriver register(String prefix, long connectNanos, long roundTripNanos)
+        throws SQLException {
+      StubDriver driver = new StubDriver(prefix, connectNanos, roundTripNanos);
+      DriverManager.registerDriver(driver);
+      return driver;
+    }
+
+    long connects() {
+      return connects.sum();
+    }
+
+    long prepares() {
+      return prepares.sum();
+    }
+
+    // Returns the number of rows inserted by the statements
+    long rows() {
+      return rows.sum();
+    }
+
+    // Returns the max number of statements executed at once
+    int maxInFlight() {
+      return maxInFlight.get();
+    }
+
+    private PreparedStatement prepare(String sql) {
+      LockSupport.parkNanos(roundTripNanos);
+      prepares.increment();
+      int[] batched = {0};
+      return (PreparedStatement)
+          Proxy.newProxyInstance(
+              PreparedStatement.class.getClassLoader(),
+              new Class<?>[] {PreparedStatement.class},
+              (proxy, method, args) -> {
+                switch (method.getName()) {
+                  case "addBatch":
+                    batched[0]++;
+                    return null;
+                  case "clearBatch":
+                    batched[0] = 0;
+                    return null;
+                  case "executeBatch":
+                    LockSupport.parkNanos(roundTripNanos);
+                    rows.add(batched[0]);
+                    int[] counts = new int[batched[0]];
+                    Arrays.fill(counts, 1);
+                    batched[0] = 0;
+                    return counts;
+                  case "executeUpdate":
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    LockSupport.parkNanos(roundTripNanos);
+                    inFlight.decrementAndGet();
+                    rows.increment();
+                    return 1;
+                  case "toString":
+                    return sql;
+                  case "hashCode":
+                    return System.identityHashCode(proxy);
+                  case "equals":
+                    return proxy == args[0];
+                  default:
+                    return defaultValue(method.getReturnType());
+                }
+              });
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+      if (!acceptsURL(url)) {
+        return null;
+      }
+      LockSupport.parkNanos(connectNanos);
+      connects.increment();
+      String name = "StubConnection" + connects.sum();
+      boolean[] state = {false, true};
+      return (Connection)
+          Proxy.newProxyInstance(
+              Connection.class.getClassLoader(),
+              new Class<?>[] {Connection.class},
+              (proxy, method, args) -> {
+                switch (method.getName()) {
+                  case "close":
+                    state[0] = true;
+                    return null;
+                  case "isClosed":
+                    return state[0];
+                  case "isValid":
+                    return !state[0];
+                  case "getAutoCommit":
+                    return state[1];
+                  case "setAutoCommit":
+                    state[1] = (Boolean) args[0];
+                    return null;
+                  case "prepareStatement":
+                    return prepare((String) args[0]);
+                  case "toString":
+                    return name;
+                  case "hashCode":
+                    return System.identityHashCode(proxy);
+                  case "equals":
+                    return proxy == args[0];
+                  default:
+                    return defaultValue(method.getReturnType());
+                }
+              });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+      return url.startsWith(prefix);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+      return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+      return Logger.getLogger(StubDriver.class.getName());
+    }
+  }
+
+  // Returns the value returned by a stub method of the given return type
+  static Object defaultValue(Class<?> type) {
+    if (type.isPrimitive() && type != void.class) {
+      return Array.get(Array.newInstance(type, 1), 0);
+    }
+    return null;
+  }
+
+
+  // BatchWriter - Inserting rows in batches with cached statements compared to one at a time
+  public static void batchWriterBenchmark() throws SQLException {
+    StubDriver driver = StubDriver.register("jdbc:stub:batch", 100_000, 50_000);
+    String url = "jdbc:stub:batch:test";
+    String insert = "INSERT INTO trades (id, price) VALUES (?, ?)";
+    try (PooledDataSource pool = new PooledDataSource(url, new Properties(), 2)) {
+      for (int i = 0; i < 3; i++) {
+        try (Connection connection = pool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(insert);
+            PreparedStatement concurrent = connection.prepareStatement(insert)) {
+          statement.setLong(1, i);
+          concurrent.setLong(1, i);
+          statement.executeUpdate();
+        }
+      }
+      long preparesBefore = driver.prepares();
+      long rowsBefore = driver.rows();
+      try (BatchWriter writer = new BatchWriter(pool, insert, 100, Duration.ofMillis(20))) {
+        for (int i = 0; i < 250; i++) {
+          writer.write(i, 1.5);
+        }
+        Thread.sleep(100);
+        if (writer.getWrittenCount() != 250) {
+          throw new IllegalStateException("BatchWriter did not flush the late rows");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      // Only the second statement in use at once is prepared again
+      if (preparesBefore != 4 || driver.prepares() != 4 || driver.rows() - rowsBefore != 250) {
+        throw new IllegalStateException("PooledDataSource does not cache the statements");
+      }
+    }
+
+    int rows = 2_000;
+    for (int cacheSize : new int[] {0, 64}) {
+      try (PooledDataSource pool =
+          new PooledDataSource(
+              url,
+              new Properties(),
+              2,
+              Duration.ofSeconds(30),
+              Duration.ofSeconds(1),
+              Duration.ZERO,
+              cacheSize)) {
+        measureRows(
+            "Row at a time, statement cache of " + cacheSize + " (50 us round trip)",
+            rows,
+            () -> {
+              for (int i = 0; i < rows; i++) {
+                try (Connection connection = pool.getConnection();
+                    PreparedStatement statement = connection.prepareStatement(insert)) {
+                  statement.setLong(1, i);
+                  statement.setDouble(2, 1.5);
+                  statement.executeUpdate();
+                }
+              }
+            });
+      }
+    }
+    try (PooledDataSource pool = new PooledDataSource(url, new Properties(), 2)) {
+      for (int batchSize : new int[] {10, 100, 1_000}) {
+        measureRows(
+            "BatchWriter, batches of " + batchSize + " (50 us round trip)",
+            rows * 10,
+            () -> {
+              try (BatchWriter writer =
+                  new BatchWriter(pool, insert, batchSize, Duration.ofMillis(10))) {
+                for (int i = 0; i < rows * 10; i++) {
+                  writer.write(i, 1.5);
+                }
+              }
+            });
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface SqlRunnable {
+    void run() throws SQLException;
+  }
+
+  // Runs the task after warming it up and prints the rows written per second
+  private static void measureRows(String name, int rows, SqlRunnable task) throws SQLException {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      task.run();
+    }
+    long start = System.nanoTime();
+    task.run();
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("%-60s %,15.0f rows/s%n", name, rows * 1e9 / elapsed);
+  }
+
+  // DriverResolver - Resolving drivers once per URL prefix compared to the DriverManager scan
+  public static void driverResolverBenchmark() throws SQLException {
+    // Other drivers are registered before the stub, as on a class path with several drivers
+    for (int i = 0; i < 8; i++) {
+      StubDriver.register("jdbc:other" + i, 0, 0);
+    }
+    StubDriver.register("jdbc:stub:resolver", 0, 0);
+    String url = "jdbc:stub:resolver:test";
+    String missingUrl = "jdbc:missing:/tmp/test.db";
+    DriverResolver resolver = new DriverResolver(Duration.ofSeconds(30));
+
+    String expectedMessage = null;
+    try {
+      DriverManager.getConnection(missingUrl);
+    } catch (SQLException e) {
+      expectedMessage = e.getMessage();
+    }
+    for (int i = 0; i < 2; i++) {
+      try {
+        resolver.connect(missingUrl, new Properties()).close();
+        throw new IllegalStateException("DriverResolver resolved a missing driver");
+      } catch (DriverResolver.NoSuitableDriverException e) {
+        if (!e.getMessage().equals(expectedMessage) || e.getStackTrace().length != 0) {
+          throw new IllegalStateException("DriverResolver exception differs : " + e);
+        }
+      }
+    }
+    if (!(resolver.resolve(url) instanceof StubDriver)
+        || resolver.resolve("jdbc:stub:resolver:other") != resolver.resolve(url)) {
+      throw new IllegalStateException("DriverResolver did not resolve the stub driver");
+    }
+
+    Properties info = new Properties();
+    measure(
+        "DriverManager.getConnection (10th of 10 drivers)",
+        200_000,
+        i -> {
+          try (Connection connection = DriverManager.getConnection(url, info)) {
+            sink = connection;
+          } catch (SQLException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    measure(
+        "DriverResolver.connect (10th of 10 drivers)",
+        200_000,
+        i -> {
+          try (Connection connection = resolver.connect(url, info)) {
+            sink = connection;
+          } catch (SQLException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    measure(
+        "DriverManager.getConnection (missing driver)",
+        200_000,
+        i -> {
+          try {
+            DriverManager.getConnection(missingUrl, info);
+          } catch (SQLException e) {
+            sink = e;
+          }
+        });
+    measure(
+        "DriverResolver.connect (missing driver)",
+        200_000,
+        i -> {
+          try {
+            resolver.connect(missingUrl, info);
+          } catch (SQLException e) {
+            sink = e;
+          }
+        });
+  }
+
+  // AsyncJdbcExecutor - Load of many concurrent requests on a pool of a few connections
+  public static void asyncJdbcExecutorBenchmark() throws SQLException {
+    StubDriver driver = StubDriver.register("jdbc:stub:async", 100_000, 2_000_000);
+    String url = "jdbc:stub:async:test";
+    String update = "UPDATE accounts SET balance = balance + ? WHERE id = ?";
+    int poolSize = 8;
+    int requests = 5_000;
+
+    try (PooledDataSource pool = new PooledDataSource(url, new Properties(), poolSize)) {
+      long start = System.nanoTime();
+      for (int i = 0; i < requests / 10; i++) {
+        try (Connection connection = pool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(update)) {
+          sink = statement.executeUpdate();
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.printf(
+          "%-60s %,15.0f requests/s%n",
+          "Synchronous JDBC on the caller (2 ms latency)",
+          requests / 10 * 1e9 / elapsed);
+
+      try (AsyncJdbcExecutor executor = new AsyncJdbcExecutor(pool)) {
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+          start = System.nanoTime();
+          List<CompletableFuture<Integer>> futures = new ArrayList<>(requests);
+          for (int i = 0; i < requests; i++) {
+            futures.add(
+                executor.submit(
+                    connection -> {
+                      try (PreparedStatement statement = connection.prepareStatement(update)) {
+                        return statement.executeUpdate();
+                      }
+                    }));
+          }
+          int updated = 0;
+          for (CompletableFuture<Integer> future : futures) {
+            updated += future.join();
+          }
+          elapsed = System.nanoTime() - start;
+          if (updated != requests || driver.maxInFlight() > poolSize) {
+            throw new IllegalStateException(
+                "AsyncJdbcExecutor ran " + driver.maxInFlight() + " statements at once");
+          }
+          if (round == WARMUP_ROUNDS) {
+            String threads = executor.usesVirtualThreads() ? "virtual" : "platform";
+            System.out.printf(
+                "%-60s %,15.0f requests/s%n",
+                "AsyncJdbcExecutor, pool of " + poolSize + " (" + threads + " threads)",
+                requests * 1e9 / elapsed);
+          }
+        }
+
+        Throwable failure =
+            executor
+                .<Integer>submit(
+                    connection -> {
+                      throw new SQLException("Deadlock", "40001");
+                    })
+                .handle((value, e) -> e)
+                .join();
+        if (!(failure instanceof SQLException)) {
+          throw new IllegalStateException("AsyncJdbcExecutor did not fail the future : " + failure);
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args)
+      throws IOException, GeneralSecurityException, SQLException {
+    asyncHandlerBenchmark();
+    logFormatterBenchmark();
+    lazyLoggerBenchmark();
+    mappedFileHandlerBenchmark();
+    binaryLogFormatBenchmark();
+    samplingFilterBenchmark();
+    keyFactoryCacheBenchmark();
+    bulkKeyDecoderBenchmark();
+    factoryRegistryBenchmark();
+    numberFormatsBenchmark();
+    fixedPointFormatterBenchmark();
+    columnFormatterBenchmark();
+    stringBuildersBenchmark();
+    utf8BuilderBenchmark();
+    ropeBuilderBenchmark();
+    persistentVectorBenchmark();
+    lazyCloneListBenchmark();
+    deepClonerBenchmark();
+    primitiveListsBenchmark();
+    offHeapRecordListBenchmark();
+    byteViewsBenchmark();
+    pooledDataSourceBenchmark();
+    batchWriterBenchmark();
+    driverResolverBenchmark();
+    asyncJdbcExecutorBenchmark();
+  }
+}
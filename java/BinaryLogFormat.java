@@ -0,0 +1,398 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * This class contains a compact binary encoding of log records, and the decoder which renders the
+ * encoded records offline with the same layout as {@link LogFormatter}.
+ *
+ * <p>A stream starts with a 4 byte magic followed by entries, each one starting with a tag byte. A
+ * string entry defines the id of a logger name, source class name, level name or message template
+ * the first time it is seen. A record entry holds the timestamp as a zigzag varint delta to the
+ * previous record, the level as a byte, the varint references of the logger, source class and
+ * template, and the typed parameters. A reference is 0 for null, 1 for a string written inline
+ * after it, or the id plus 1 of a string entry. Messages without parameters are written inline, as
+ * they are usually already formatted and seldom repeated, and so are the strings seen once the
+ * stream defined {@code 4096} strings, which bounds the memory of the encoder and the decoder. A
+ * zero tag (e.g. the padding of a mapped segment) ends the stream.
+ *
+ * <p>The main method decodes the given files to the standard output.
+ */
+public class BinaryLogFormat {
+
+  private static final int MAGIC = 0x4A4C4202;
+  private static final int MAX_STRINGS = 4096;
+
+  private static final byte END = 0;
+  private static final byte STRING = 1;
+  private static final byte RECORD = 2;
+
+  private static final int NULL_REFERENCE = 0;
+  private static final int INLINE_REFERENCE = 1;
+
+  private static final byte CUSTOM_LEVEL = -1;
+  private static final Level[] LEVELS = {
+    Level.OFF,
+    Level.SEVERE,
+    Level.WARNING,
+    Level.INFO,
+    Level.CONFIG,
+    Level.FINE,
+    Level.FINER,
+    Level.FINEST,
+    Level.ALL
+  };
+
+  private static final byte NULL_PARAMETER = 0;
+  private static final byte STRING_PARAMETER = 1;
+  private static final byte LONG_PARAMETER = 2;
+  private static final byte DOUBLE_PARAMETER = 3;
+  private static final byte FLOAT_PARAMETER = 4;
+  private static final byte TRUE_PARAMETER = 5;
+  private static final byte FALSE_PARAMETER = 6;
+
+  private BinaryLogFormat() {}
+
+  /**
+   * Encodes records into byte buffers. An encoder keeps the interned ids, at most {@code 4096} of
+   * them, and the previous timestamp, hence it is not thread-safe and must be {@link #reset()}
+   * whenever it starts writing a new stream.
+   */
+  public static final class Encoder {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private boolean started;
+    private long lastMillis;
+
+    public void reset() {
+      ids.clear();
+      strings.clear();
+      started = false;
+      lastMillis = 0;
+    }
+
+    /**
+     * Encodes the record at the position of the buffer. If the buffer is too small, the buffer
+     * position and the encoder state are restored before the {@link BufferOverflowException} is
+     * thrown, so the record can be encoded again into another buffer.
+     */
+    public void encode(LogRecord record, ByteBuffer buffer) {
+      int start = buffer.position();
+      int definedStrings = strings.size();
+      boolean wasStarted = started;
+      try {
+        if (!started) {
+          buffer.putInt(MAGIC);
+          started = true;
+        }
+
+        int level = levelIndex(record.getLevel());
+        String levelName = level == CUSTOM_LEVEL ? record.getLevel().getName() : null;
+        Object[] parameters = record.getParameters();
+        boolean hasParameters = parameters != null && parameters.length > 0;
+        int levelReference = intern(levelName, buffer);
+        int logger = intern(record.getLoggerName(), buffer);
+        int source = intern(record.getSourceClassName(), buffer);
+        int template =
+            hasParameters || record.getMessage() == null
+                ? intern(record.getMessage(), buffer)
+                : INLINE_REFERENCE;
+
+        buffer.put(RECORD);
+        putVarLong(buffer, zigzag(record.getMillis() - lastMillis));
+        buffer.put((byte) level);
+        if (level == CUSTOM_LEVEL) {
+          putReference(buffer, levelReference, levelName);
+        }
+        putReference(buffer, logger, record.getLoggerName());
+        putReference(buffer, source, record.getSourceClassName());
+        putReference(buffer, template, record.getMessage());
+        putParameters(buffer, parameters);
+        lastMillis = record.getMillis();
+      } catch (BufferOverflowException e) {
+        buffer.position(start);
+        while (strings.size() > definedStrings) {
+          ids.remove(strings.remove(strings.size() - 1));
+        }
+        started = wasStarted;
+        throw e;
+      }
+    }
+
+    // Returns the reference of the string, defining it first if it is new and the table has room
+    private int intern(String value, ByteBuffer buffer) {
+      if (value == null) {
+        return NULL_REFERENCE;
+      }
+      Integer id = ids.get(value);
+      if (id != null) {
+        return id + 1;
+      } else if (strings.size() >= MAX_STRINGS) {
+        return INLINE_REFERENCE;
+      }
+      strings.add(value);
+      int newId = strings.size();
+      ids.put(value, newId);
+      buffer.put(STRING);
+      putVarLong(buffer, newId);
+      putString(buffer, value);
+      return newId + 1;
+    }
+
+    private static void putReference(ByteBuffer buffer, int reference, String value) {
+      putVarLong(buffer, reference);
+      if (reference == INLINE_REFERENCE) {
+        putString(buffer, value);
+      }
+    }
+
+    private static int levelIndex(Level level) {
+      for (int i = 0; i < LEVELS.length; i++) {
+        if (LEVELS[i] == level) {
+          return i;
+        }
+      }
+      return CUSTOM_LEVEL;
+    }
+
+    private static void putParameters(ByteBuffer buffer, Object[] parameters) {
+      if (parameters == null) {
+        putVarLong(buffer, 0);
+        return;
+      }
+      putVarLong(buffer, parameters.length);
+      for (Object parameter : parameters) {
+        if (parameter == null) {
+          buffer.put(NULL_PARAMETER);
+        } else if (parameter instanceof Long
+            || parameter instanceof Integer
+            || parameter instanceof Short
+            || parameter instanceof Byte) {
+          buffer.put(LONG_PARAMETER);
+          putVarLong(buffer, zigzag(((Number) parameter).longValue()));
+        } else if (parameter instanceof Double) {
+          buffer.put(DOUBLE_PARAMETER).putDouble((Double) parameter);
+        } else if (parameter instanceof Float) {
+          buffer.put(FLOAT_PARAMETER).putFloat((Float) parameter);
+        } else if (parameter instanceof Boolean) {
+          buffer.put((Boolean) parameter ? TRUE_PARAMETER : FALSE_PARAMETER);
+        } else {
+          buffer.put(STRING_PARAMETER);
+          putString(buffer, String.valueOf(parameter));
+        }
+      }
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+      int length = value.length();
+      int bytes = 0;
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          bytes++;
+        } else if (c < 0x800) {
+          bytes += 2;
+        } else if (Character.isHighSurrogate(c)
+            && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          bytes += 4;
+          i++;
+        } else {
+          bytes += 3;
+        }
+      }
+
+      putVarLong(buffer, bytes);
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer.put((byte) c);
+        } else if (c < 0x800) {
+          buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c)
+            && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer
+              .put((byte) (0xF0 | codePoint >> 18))
+              .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+              .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+              .put((byte) (0x80 | codePoint & 0x3F));
+        } else {
+          buffer
+              .put((byte) (0xE0 | c >> 12))
+              .put((byte) (0x80 | c >> 6 & 0x3F))
+              .put((byte) (0x80 | c & 0x3F));
+        }
+      }
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+      while ((value & ~0x7FL) != 0) {
+        buffer.put((byte) (value & 0x7F | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+  }
+
+  /** Decodes a stream written by an {@link Encoder} and renders the {@link LogFormatter} layout. */
+  public static final class Decoder {
+
+    private final LogFormatter formatter = new LogFormatter();
+    private final List<String> strings = new ArrayList<>();
+    private boolean started;
+    private long lastMillis;
+
+    /**
+     * Decodes the next record at the position of the buffer and appends its rendered line.
+     *
+     * @return false once the end of the stream is reached
+     */
+    public boolean decodeNext(ByteBuffer buffer, StringBuilder out) {
+      if (!started) {
+        if (!buffer.hasRemaining()) {
+          return false;
+        }
+        if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+          throw new IllegalArgumentException("Not a binary log stream");
+        }
+        started = true;
+      }
+
+      while (buffer.hasRemaining()) {
+        byte tag = buffer.get();
+        if (tag == END) {
+          return false;
+        } else if (tag == STRING) {
+          int id = (int) getVarLong(buffer);
+          if (id != strings.size() + 1 || id > MAX_STRINGS) {
+            throw new IllegalArgumentException("Unexpected string id : " + id);
+          }
+          strings.add(getString(buffer));
+        } else if (tag == RECORD) {
+          long millis = lastMillis + unzigzag(getVarLong(buffer));
+          byte level = buffer.get();
+          String levelName = level == CUSTOM_LEVEL ? string(buffer) : LEVELS[level].getName();
+          string(buffer); // the logger name is not part of the layout
+          String sourceClassName = string(buffer);
+          String template = string(buffer);
+          Object[] parameters = getParameters(buffer);
+          lastMillis = millis;
+          formatter.formatTo(out, millis, levelName, sourceClassName, template, parameters);
+          return true;
+        } else {
+          throw new IllegalArgumentException("Unexpected tag : " + tag);
+        }
+      }
+      return false;
+    }
+
+    // Reads a string reference and returns its string
+    private String string(ByteBuffer buffer) {
+      long reference = getVarLong(buffer);
+      if (reference == NULL_REFERENCE) {
+        return null;
+      } else if (reference == INLINE_REFERENCE) {
+        return getString(buffer);
+      }
+      return strings.get((int) reference - 2);
+    }
+
+    private static Object[] getParameters(ByteBuffer buffer) {
+      int count = (int) getVarLong(buffer);
+      if (count == 0) {
+        return null;
+      }
+      Object[] parameters = new Object[count];
+      for (int i = 0; i < count; i++) {
+        byte type = buffer.get();
+        switch (type) {
+          case NULL_PARAMETER:
+            break;
+          case STRING_PARAMETER:
+            parameters[i] = getString(buffer);
+            break;
+          case LONG_PARAMETER:
+            parameters[i] = unzigzag(getVarLong(buffer));
+            break;
+          case DOUBLE_PARAMETER:
+            parameters[i] = buffer.getDouble();
+            break;
+          case FLOAT_PARAMETER:
+            parameters[i] = buffer.getFloat();
+            break;
+          case TRUE_PARAMETER:
+            parameters[i] = Boolean.TRUE;
+            break;
+          case FALSE_PARAMETER:
+            parameters[i] = Boolean.FALSE;
+            break;
+          default:
+            throw new IllegalArgumentException("Unexpected parameter type : " + type);
+        }
+      }
+      return parameters;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+      int length = (int) getVarLong(buffer);
+      String value = StandardCharsets.UTF_8.decode(buffer.slice().limit(length)).toString();
+      buffer.position(buffer.position() + length);
+      return value;
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buffer.get();
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    private static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    StringBuilder line = new StringBuilder();
+    for (String file : args) {
+      Path path = Paths.get(file);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        Decoder decoder = new Decoder();
+        while (decoder.decodeNext(buffer, line)) {
+          out.append(line);
+          line.setLength(0);
+        }
+      }
+    }
+    out.flush();
+  }
+}
@@ -0,0 +1,129 @@
+package com.example;
+
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class decodes batches of encoded keys in parallel, X.509 encoded public keys and PKCS#8
+ * encoded private keys, on top of a {@link KeyFactoryCache}.
+ *
+ * <p>A batch is split recursively on a {@link ForkJoinPool} down to chunks of {@value
+ * #CHUNK_SIZE} keys, and every worker decodes its chunks with the key factory of its own thread.
+ * The decoded keys are returned in the order of the encoded keys.
+ */
+public final class BulkKeyDecoder {
+
+  private static final int CHUNK_SIZE = 64;
+
+  private final KeyFactoryCache cache;
+  private final ForkJoinPool pool;
+
+  public BulkKeyDecoder(KeyFactoryCache cache) {
+    this(cache, ForkJoinPool.commonPool());
+  }
+
+  public BulkKeyDecoder(KeyFactoryCache cache, ForkJoinPool pool) {
+    this.cache = cache;
+    this.pool = pool;
+  }
+
+  public List<PublicKey> decodePublic(List<byte[]> encodedKeys) throws InvalidKeySpecException {
+    return decode(
+        encodedKeys, (factory, key) -> factory.generatePublic(new X509EncodedKeySpec(key)));
+  }
+
+  public List<PublicKey> decodePublic(Stream<byte[]> encodedKeys) throws InvalidKeySpecException {
+    return decodePublic(encodedKeys.collect(Collectors.toList()));
+  }
+
+  public List<PrivateKey> decodePrivate(List<byte[]> encodedKeys) throws InvalidKeySpecException {
+    return decode(
+        encodedKeys, (factory, key) -> factory.generatePrivate(new PKCS8EncodedKeySpec(key)));
+  }
+
+  public List<PrivateKey> decodePrivate(Stream<byte[]> encodedKeys)
+      throws InvalidKeySpecException {
+    return decodePrivate(encodedKeys.collect(Collectors.toList()));
+  }
+
+  @FunctionalInterface
+  private interface KeyDecoder<K> {
+    K decode(KeyFactory factory, byte[] encodedKey) throws InvalidKeySpecException;
+  }
+
+  // Carries the checked exception of a worker back to the caller
+  private static final class DecodingException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    DecodingException(InvalidKeySpecException cause) {
+      super(cause);
+    }
+  }
+
+  private <K> List<K> decode(List<byte[]> encodedKeys, KeyDecoder<K> decoder)
+      throws InvalidKeySpecException {
+    Object[] keys = new Object[encodedKeys.size()];
+    try {
+      pool.invoke(new DecodeTask<>(encodedKeys, keys, 0, keys.length, decoder));
+    } catch (DecodingException e) {
+      Throwable cause = e;
+      while (!(cause instanceof InvalidKeySpecException)) {
+        cause = cause.getCause();
+      }
+      throw (InvalidKeySpecException) cause;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<K> decodedKeys = (List<K>) Arrays.asList(keys);
+    return Collections.unmodifiableList(decodedKeys);
+  }
+
+  private final class DecodeTask<K> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<byte[]> encodedKeys;
+    private final Object[] keys;
+    private final int from;
+    private final int to;
+    private final KeyDecoder<K> decoder;
+
+    DecodeTask(List<byte[]> encodedKeys, Object[] keys, int from, int to, KeyDecoder<K> decoder) {
+      this.encodedKeys = encodedKeys;
+      this.keys = keys;
+      this.from = from;
+      this.to = to;
+      this.decoder = decoder;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > CHUNK_SIZE) {
+        int middle = (from + to) >>> 1;
+        invokeAll(
+            new DecodeTask<>(encodedKeys, keys, from, middle, decoder),
+            new DecodeTask<>(encodedKeys, keys, middle, to, decoder));
+        return;
+      }
+
+      KeyFactory factory = cache.get();
+      for (int i = from; i < to; i++) {
+        try {
+          keys[i] = decoder.decode(factory, encodedKeys.get(i));
+        } catch (InvalidKeySpecException e) {
+          throw new DecodingException(e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * This class adapts bytes in arrays and heap, direct or mapped {@link ByteBuffer}s to {@link
+ * CharSequence}, {@link InputStream} and {@link ReadableByteChannel} views without copying them.
+ *
+ * <p>A {@code CharSequence} view decodes each byte as one ISO-8859-1 char when it is read, which
+ * is correct for ASCII and Latin-1 data, so a parser can match a {@link java.util.regex.Pattern}
+ * on the bytes instead of first copying them into a {@code new String(bytes)}. Only {@code
+ * toString()} copies. The stream views copy the bytes only into the destination of a read. The
+ * views take the remaining bytes of a buffer when they are created, and neither move its position
+ * nor see later changes of its position or limit. They are not thread-safe.
+ */
+public final class ByteViews {
+
+  private ByteViews() {}
+
+  /** Returns the remaining bytes of the buffer as ISO-8859-1 chars. */
+  public static CharSequence asCharSequence(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return new ArrayChars(
+          buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    return new BufferChars(buffer, buffer.position(), buffer.remaining());
+  }
+
+  /** Returns the bytes of the array region as ISO-8859-1 chars. */
+  public static CharSequence asCharSequence(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return new ArrayChars(bytes, offset, length);
+  }
+
+  /** Returns a stream reading the remaining bytes of the buffer. */
+  public static InputStream asInputStream(ByteBuffer buffer) {
+    return new ByteBufferStream(buffer);
+  }
+
+  /** Returns a stream reading the bytes of the array region, without synchronization. */
+  public static InputStream asInputStream(byte[] bytes, int offset, int length) {
+    return new ByteBufferStream(ByteBuffer.wrap(bytes, offset, length));
+  }
+
+  /** Returns a channel reading the remaining bytes of the buffer. */
+  public static ReadableByteChannel asChannel(ByteBuffer buffer) {
+    return new ByteBufferStream(buffer);
+  }
+
+  /** Returns a channel reading the bytes of the array region. */
+  public static ReadableByteChannel asChannel(byte[] bytes, int offset, int length) {
+    return new ByteBufferStream(ByteBuffer.wrap(bytes, offset, length));
+  }
+
+  // The chars of a region of a byte array
+  private static final class ArrayChars implements CharSequence {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    ArrayChars(byte[] bytes, int offset, int length) {
+      this.bytes = bytes;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes[offset + Objects.checkIndex(index, length)] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      Objects.checkFromToIndex(start, end, length);
+      return new ArrayChars(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  // The chars of a region of a buffer, read with absolute gets
+  private static final class BufferChars implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    BufferChars(ByteBuffer buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (buffer.get(offset + Objects.checkIndex(index, length)) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      Objects.checkFromToIndex(start, end, length);
+      return new BufferChars(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      byte[] bytes = new byte[length];
+      buffer.get(offset, bytes);
+      return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  // Reads the bytes of a buffer from its own position, as a stream or as a channel
+  private static final class ByteBufferStream extends InputStream implements ReadableByteChannel {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+    private int mark;
+    private boolean open = true;
+
+    ByteBufferStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.limit = buffer.limit();
+      this.position = buffer.position();
+      this.mark = position;
+    }
+
+    @Override
+    public int read() {
+      return position < limit ? buffer.get(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      Objects.checkFromIndexSize(offset, length, bytes.length);
+      if (length == 0) {
+        return 0;
+      } else if (position >= limit) {
+        return -1;
+      }
+      int count = Math.min(length, limit - position);
+      buffer.get(position, bytes, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws IOException {
+      if (!open) {
+        throw new ClosedChannelException();
+      } else if (position >= limit) {
+        return -1;
+      }
+      int count = Math.min(destination.remaining(), limit - position);
+      if (buffer.hasArray()) {
+        destination.put(buffer.array(), buffer.arrayOffset() + position, count);
+      } else {
+        destination.put(buffer.slice(position, count));
+      }
+      position += count;
+      return count;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(0, Math.min(count, limit - position));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      mark = position;
+    }
+
+    @Override
+    public void reset() {
+      position = mark;
+    }
+
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+      int count = limit - position;
+      if (buffer.hasArray()) {
+        out.write(buffer.array(), buffer.arrayOffset() + position, count);
+        position = limit;
+        return count;
+      }
+      return super.transferTo(out);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package com.example;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class formats whole columns of numbers, a {@code double[]} or a {@code long[]} of
+ * fixed-point values, with one {@link NumberFormat} style into a single contiguous {@code char[]}
+ * and an array of offsets.
+ *
+ * <p>Formatting value by value creates a {@code StringBuffer}, a {@code FieldPosition} and a
+ * {@code String} for every value. A column is formatted with one clone of the format, and values
+ * are written with a {@link FixedPointFormatter} when the format supports it, {@code long} values
+ * always and {@code double} values when they are exact at the fraction digits of the format, as
+ * e.g. prices stored as doubles. Other values fall back to the format. Columns of at least {@value
+ * #PARALLEL_THRESHOLD} values are split in chunks of {@value #CHUNK_SIZE} values which are
+ * formatted on a {@link ForkJoinPool} and merged.
+ * Formatters are thread-safe, the format given to the constructor is cloned and not used after.
+ */
+public final class ColumnFormatter {
+
+  private static final int CHUNK_SIZE = 4096;
+  private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+  private static final int MAX_SCALE = 18;
+  private static final int ESTIMATED_LENGTH = 16;
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+  private final NumberFormat prototype;
+  private final ForkJoinPool pool;
+  private final FixedPointFormatter[] fixedPointFormatters =
+      new FixedPointFormatter[MAX_SCALE + 1];
+  private volatile boolean fixedPointSupported = true;
+  private final int doubleScale;
+
+  public ColumnFormatter(NumberFormat format) {
+    this(format, ForkJoinPool.commonPool());
+  }
+
+  public ColumnFormatter(NumberFormat format, ForkJoinPool pool) {
+    this.prototype = (NumberFormat) format.clone();
+    this.pool = pool;
+    this.doubleScale = doubleScale(prototype);
+  }
+
+  /** Formats every value of the column. */
+  public Column format(double[] values) {
+    FixedPointFormatter formatter = doubleScale < 0 ? null : fixedPointFormatter(doubleScale);
+    double power = Math.pow(10, doubleScale);
+    return format(
+        values.length, (writer, index) -> writer.write(values[index], power, formatter));
+  }
+
+  /** Formats every value of the column as an integer. */
+  public Column format(long[] values) {
+    return format(values, 0);
+  }
+
+  /** Formats every value of the column as {@code unscaled / 10^scale}. */
+  public Column format(long[] unscaled, int scale) {
+    if (scale < 0 || scale > MAX_SCALE) {
+      throw new IllegalArgumentException("Unsupported scale : " + scale);
+    }
+    FixedPointFormatter formatter = fixedPointFormatter(scale);
+    return format(
+        unscaled.length, (writer, index) -> writer.write(unscaled[index], scale, formatter));
+  }
+
+  /**
+   * A formatted column. The value at {@code index} is stored in the chars from {@link
+   * #start(int)} to {@link #end(int)}, the arrays are shared and must not be modified.
+   */
+  public static final class Column {
+
+    private final char[] chars;
+    private final int[] offsets;
+
+    Column(char[] chars, int[] offsets) {
+      this.chars = chars;
+      this.offsets = offsets;
+    }
+
+    public int size() {
+      return offsets.length - 1;
+    }
+
+    /** Returns the chars of the column, which may be longer than {@code end(size() - 1)}. */
+    public char[] chars() {
+      return chars;
+    }
+
+    /** Returns the {@code size() + 1} offsets of the values in {@link #chars()}. */
+    public int[] offsets() {
+      return offsets;
+    }
+
+    public int start(int index) {
+      return offsets[index];
+    }
+
+    public int end(int index) {
+      return offsets[index + 1];
+    }
+
+    public String get(int index) {
+      return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    public StringBuilder appendTo(StringBuilder builder, int index) {
+      return builder.append(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder(offsets[size()] + 2 * size() + 2).append('[');
+      for (int i = 0; i < size(); i++) {
+        if (i > 0) {
+          builder.append(", ");
+        }
+        appendTo(builder, i);
+      }
+      return builder.append(']').toString();
+    }
+  }
+
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(ChunkWriter writer, int index);
+  }
+
+  private Column format(int size, ValueWriter values) {
+    int[] offsets = new int[size + 1];
+    if (size < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+      ChunkWriter writer = new ChunkWriter(size);
+      for (int i = 0; i < size; i++) {
+        values.write(writer, i);
+        offsets[i + 1] = writer.length;
+      }
+      return new Column(writer.chars, offsets);
+    }
+
+    ChunkWriter[] chunks = new ChunkWriter[(size + CHUNK_SIZE - 1) / CHUNK_SIZE];
+    pool.invoke(new FormatTask(values, size, offsets, chunks, 0, chunks.length));
+
+    int length = 0;
+    for (ChunkWriter chunk : chunks) {
+      length += chunk.length;
+    }
+    char[] chars = new char[length];
+    int base = 0;
+    for (int c = 0; c < chunks.length; c++) {
+      System.arraycopy(chunks[c].chars, 0, chars, base, chunks[c].length);
+      for (int i = c * CHUNK_SIZE, end = Math.min(i + CHUNK_SIZE, size); i < end; i++) {
+        offsets[i + 1] += base;
+      }
+      base += chunks[c].length;
+    }
+    return new Column(chars, offsets);
+  }
+
+  // Returns the scale at which doubles are exact in the output of the format, or -1
+  private static int doubleScale(NumberFormat format) {
+    if (!(format instanceof DecimalFormat)) {
+      return -1;
+    }
+    int scale = format.getMaximumFractionDigits();
+    int multiplier = ((DecimalFormat) format).getMultiplier();
+    for (; multiplier > 1; multiplier /= 10) {
+      scale++;
+    }
+    return scale <= MAX_SCALE ? scale : -1;
+  }
+
+  private FixedPointFormatter fixedPointFormatter(int scale) {
+    FixedPointFormatter formatter = fixedPointFormatters[scale];
+    if (formatter == null && fixedPointSupported) {
+      try {
+        formatter = FixedPointFormatter.of((NumberFormat) prototype.clone(), scale);
+      } catch (IllegalArgumentException e) {
+        fixedPointSupported = false;
+        return null;
+      }
+      // Formatters are immutable, so a racing thread at worst builds its own
+      fixedPointFormatters[scale] = formatter;
+    }
+    return formatter;
+  }
+
+  // Formats the values of one chunk with its own clone of the format
+  private final class ChunkWriter {
+
+    private final NumberFormat format = (NumberFormat) prototype.clone();
+    private final StringBuffer buffer = new StringBuffer(32);
+    private final FieldPosition fieldPosition = new FieldPosition(0);
+    private char[] chars;
+    private int length;
+
+    ChunkWriter(int values) {
+      this.chars = new char[Math.max(values * ESTIMATED_LENGTH, ESTIMATED_LENGTH)];
+    }
+
+    void write(double value, double power, FixedPointFormatter formatter) {
+      if (formatter != null) {
+        // The value is exact at the scale when it is the closest double to unscaled / power, and
+        // the format then prints the digits of unscaled without rounding
+        long unscaled = Math.round(value * power);
+        if (Math.abs(unscaled) < MAX_EXACT_DOUBLE
+            && unscaled / power == value
+            && (unscaled != 0 || Double.doubleToRawLongBits(value) == 0)) {
+          ensureCapacity(formatter.maxLength());
+          length = formatter.format(unscaled, chars, length);
+          return;
+        }
+      }
+      // The format only takes its fast path for doubles without a field position
+      String formatted = format.format(value);
+      ensureCapacity(formatted.length());
+      formatted.getChars(0, formatted.length(), chars, length);
+      length += formatted.length();
+    }
+
+    void write(long unscaled, int scale, FixedPointFormatter formatter) {
+      if (formatter != null && unscaled != Long.MIN_VALUE) {
+        ensureCapacity(formatter.maxLength());
+        try {
+          length = formatter.format(unscaled, chars, length);
+          return;
+        } catch (ArithmeticException e) {
+          // The multiplier of the format overflows the value, format it as a BigDecimal instead
+        }
+      }
+      buffer.setLength(0);
+      format.format(BigDecimal.valueOf(unscaled, scale), buffer, fieldPosition);
+      appendBuffer();
+    }
+
+    private void appendBuffer() {
+      ensureCapacity(buffer.length());
+      buffer.getChars(0, buffer.length(), chars, length);
+      length += buffer.length();
+    }
+
+    private void ensureCapacity(int additional) {
+      if (chars.length - length < additional) {
+        char[] grown = new char[Math.max(chars.length * 2, length + additional)];
+        System.arraycopy(chars, 0, grown, 0, length);
+        chars = grown;
+      }
+    }
+  }
+
+  private final class FormatTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final ValueWriter values;
+    private final int size;
+    private final int[] offsets;
+    private final ChunkWriter[] chunks;
+    private final int from;
+    private final int to;
+
+    FormatTask(
+        ValueWriter values, int size, int[] offsets, ChunkWriter[] chunks, int from, int to) {
+      this.values = values;
+      this.size = size;
+      this.offsets = offsets;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(
+            new FormatTask(values, size, offsets, chunks, from, middle),
+            new FormatTask(values, size, offsets, chunks, middle, to));
+        return;
+      }
+
+      // The offsets are relative to the chunk until the chunks are merged
+      int start = from * CHUNK_SIZE;
+      int end = Math.min(start + CHUNK_SIZE, size);
+      ChunkWriter writer = new ChunkWriter(end - start);
+      for (int i = start; i < end; i++) {
+        values.write(writer, i);
+        offsets[i + 1] = writer.length;
+      }
+      chunks[from] = writer;
+    }
+  }
+}
@@ -0,0 +1,487 @@
+package com.example;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * This class makes deep copies of object graphs, with a copier generated once per class from
+ * {@link MethodHandle}s and cached in a {@link ClassValue}.
+ *
+ * <p>The copier of a class allocates the copy with the no-arg constructor, or without running a
+ * constructor if there is none, and then copies the fields one by one, primitive and immutable
+ * values as they are and the other values with their own copiers. Records are created with their
+ * canonical constructor, arrays and the collections and maps of {@code java.util} are rebuilt,
+ * and immutable values like strings, boxed primitives, enums and {@code java.time} values are
+ * shared. Copies are tracked in an identity map, so shared and cyclic references are kept, but only
+ * if the classes reachable from the copied class can form a cycle, e.g. through a non-final field
+ * type or a collection. Otherwise an object referenced twice is copied twice. Records and immutable
+ * collections are only created once their components are copied, so a cycle through one of them
+ * cannot be copied and fails with an {@link IllegalArgumentException}. Lambdas and other hidden
+ * classes are shared if their captured fields are all immutable, and rejected otherwise.
+ *
+ * <p>Fields are read and written with deep reflection, so the copied classes must be in packages
+ * open to this class, which other JDK classes than the supported collections are not.
+ */
+public final class DeepCloner {
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES =
+      Set.of(
+          String.class,
+          Boolean.class,
+          Character.class,
+          Byte.class,
+          Short.class,
+          Integer.class,
+          Long.class,
+          Float.class,
+          Double.class,
+          BigInteger.class,
+          BigDecimal.class,
+          UUID.class,
+          Locale.class,
+          Currency.class,
+          Class.class);
+
+  private static final MethodType COPIER_TYPE =
+      MethodType.methodType(Object.class, Object.class, Context.class);
+  private static final MethodHandle COPY_VALUE;
+  private static final MethodHandle REGISTER;
+  private static final MethodHandle COPY_ARRAY;
+  private static final MethodHandle COPY_COLLECTION;
+  private static final MethodHandle COPY_MAP;
+  private static final MethodHandle COPY_RECORD;
+
+  // The copy of an object whose copy is not created yet, which is only the case in a cycle
+  private static final Object IN_PROGRESS = new Object();
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      COPY_VALUE = lookup.findStatic(DeepCloner.class, "copyValue", COPIER_TYPE);
+      REGISTER =
+          lookup.findStatic(
+              DeepCloner.class,
+              "register",
+              MethodType.methodType(void.class, Object.class, Object.class, Context.class));
+      COPY_ARRAY =
+          lookup.findStatic(
+              DeepCloner.class,
+              "copyArray",
+              COPIER_TYPE.insertParameterTypes(0, Class.class, boolean.class));
+      COPY_COLLECTION =
+          lookup.findStatic(
+              DeepCloner.class,
+              "copyCollection",
+              COPIER_TYPE.insertParameterTypes(0, MethodHandle.class, boolean.class));
+      COPY_MAP =
+          lookup.findStatic(
+              DeepCloner.class,
+              "copyMap",
+              COPIER_TYPE.insertParameterTypes(0, MethodHandle.class, boolean.class));
+      COPY_RECORD =
+          lookup.findStatic(
+              DeepCloner.class,
+              "copyRecord",
+              COPIER_TYPE.insertParameterTypes(0, MethodHandle.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static final ClassValue<MethodHandle> copiers =
+      new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+          return newCopier(type);
+        }
+      };
+
+  private static final ClassValue<Boolean> cyclicTypes =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          return mayBeCyclic(type, new HashSet<>());
+        }
+      };
+
+  private static final ClassValue<Boolean> immutableHiddenTypes =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          return hasImmutableFields(type);
+        }
+      };
+
+  private DeepCloner() {}
+
+  /**
+   * Returns a deep copy of the object.
+   *
+   * @throws IllegalArgumentException if the graph contains an object which cannot be copied
+   */
+  public static <T> T deepCopy(T object) {
+    if (object == null) {
+      return null;
+    }
+    Context context = new Context(cyclicTypes.get(object.getClass()));
+    @SuppressWarnings("unchecked")
+    T copy = (T) copyValue(object, context);
+    return copy;
+  }
+
+  // The copies made so far, if the graph can have shared or cyclic references
+  static final class Context {
+    private final IdentityHashMap<Object, Object> copies;
+
+    Context(boolean trackCopies) {
+      this.copies = trackCopies ? new IdentityHashMap<>() : null;
+    }
+  }
+
+  private static Object copyValue(Object value, Context context) {
+    if (value == null || isImmutable(value.getClass())) {
+      return value;
+    }
+    if (context.copies != null) {
+      Object copy = context.copies.get(value);
+      if (copy == IN_PROGRESS) {
+        throw new IllegalArgumentException(
+            "Cannot copy a cycle through " + value.getClass().getName());
+      } else if (copy != null) {
+        return copy;
+      }
+    }
+    try {
+      return (Object) copiers.get(value.getClass()).invokeExact(value, context);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot copy " + value.getClass().getName(), e);
+    }
+  }
+
+  // Marks the source as being copied until its copy is registered
+  private static void enter(Object source, Context context) {
+    if (context.copies != null) {
+      context.copies.put(source, IN_PROGRESS);
+    }
+  }
+
+  private static void register(Object copy, Object source, Context context) {
+    if (context.copies != null) {
+      context.copies.put(source, copy);
+    }
+  }
+
+  private static boolean isImmutable(Class<?> type) {
+    return type.isPrimitive()
+        || IMMUTABLE_TYPES.contains(type)
+        || Enum.class.isAssignableFrom(type)
+        || (type.isHidden() && immutableHiddenTypes.get(type))
+        || ("java.time".equals(type.getPackageName()) && Modifier.isFinal(type.getModifiers()));
+  }
+
+  private static MethodHandle newCopier(Class<?> type) {
+    try {
+      if (type.isArray()) {
+        Class<?> componentType = type.getComponentType();
+        return MethodHandles.insertArguments(
+            COPY_ARRAY, 0, componentType, isImmutable(componentType));
+      } else if (Collection.class.isAssignableFrom(type) && isJdkType(type)) {
+        return MethodHandles.insertArguments(
+            COPY_COLLECTION, 0, collectionFactory(type), isImmutableCollection(type));
+      } else if (Map.class.isAssignableFrom(type) && isJdkType(type)) {
+        return MethodHandles.insertArguments(
+            COPY_MAP, 0, collectionFactory(type), isImmutableCollection(type));
+      } else if (isJdkType(type)) {
+        throw new IllegalArgumentException("Cannot copy JDK class " + type.getName());
+      } else if (type.isHidden()) {
+        throw new IllegalArgumentException(
+            "Cannot copy the mutable captured state of hidden class " + type.getName());
+      } else if (type.isRecord()) {
+        return recordCopier(type);
+      }
+      return objectCopier(type);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      throw new IllegalArgumentException("Cannot generate a copier for " + type.getName(), e);
+    }
+  }
+
+  // Allocates the copy, registers it and then sets the fields in a single composed handle
+  private static MethodHandle objectCopier(Class<?> type) throws ReflectiveOperationException {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle body =
+        MethodHandles.dropArguments(
+            MethodHandles.identity(Object.class), 1, Object.class, Context.class);
+    for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+      if (isJdkType(current)) {
+        throw new IllegalArgumentException("Cannot copy fields of JDK class " + current.getName());
+      }
+      for (Field field : current.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        field.setAccessible(true);
+        MethodHandle getter = lookup.unreflectGetter(field);
+        MethodHandle setter = lookup.unreflectSetter(field);
+        body = MethodHandles.foldArguments(body, fieldCopier(field.getType(), getter, setter));
+      }
+    }
+    body = MethodHandles.foldArguments(body, REGISTER);
+    return MethodHandles.foldArguments(body, allocator(type, lookup));
+  }
+
+  // Returns a handle (Object copy, Object source, Context context) void setting one field
+  private static MethodHandle fieldCopier(
+      Class<?> fieldType, MethodHandle getter, MethodHandle setter) {
+    MethodHandle value = getter.asType(MethodType.methodType(fieldType, Object.class));
+    MethodHandle write = setter.asType(MethodType.methodType(void.class, Object.class, fieldType));
+    if (isImmutable(fieldType)) {
+      return MethodHandles.dropArguments(
+          MethodHandles.filterArguments(write, 1, value), 2, Context.class);
+    }
+    MethodHandle copy =
+        MethodHandles.filterArguments(
+                COPY_VALUE, 0, value.asType(MethodType.methodType(Object.class, Object.class)))
+            .asType(MethodType.methodType(fieldType, Object.class, Context.class));
+    return MethodHandles.collectArguments(write, 1, copy);
+  }
+
+  // Creates the copy with the canonical constructor from the copied components
+  private static MethodHandle recordCopier(Class<?> type) throws ReflectiveOperationException {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    RecordComponent[] components = type.getRecordComponents();
+    Class<?>[] componentTypes = new Class<?>[components.length];
+    for (int i = 0; i < components.length; i++) {
+      componentTypes[i] = components[i].getType();
+    }
+    Constructor<?> canonical = type.getDeclaredConstructor(componentTypes);
+    canonical.setAccessible(true);
+    MethodHandle constructor = lookup.unreflectConstructor(canonical);
+
+    for (int i = components.length - 1; i >= 0; i--) {
+      Class<?> componentType = componentTypes[i];
+      Method accessor = components[i].getAccessor();
+      accessor.setAccessible(true);
+      MethodHandle value =
+          lookup.unreflect(accessor).asType(MethodType.methodType(componentType, Object.class));
+      MethodHandle argument =
+          isImmutable(componentType)
+              ? MethodHandles.dropArguments(value, 1, Context.class)
+              : MethodHandles.filterArguments(
+                      COPY_VALUE,
+                      0,
+                      value.asType(MethodType.methodType(Object.class, Object.class)))
+                  .asType(MethodType.methodType(componentType, Object.class, Context.class));
+      constructor = MethodHandles.collectArguments(constructor, i, argument);
+    }
+
+    // Every component reads the same source and context
+    int[] reorder = new int[components.length * 2];
+    for (int i = 0; i < reorder.length; i++) {
+      reorder[i] = i % 2;
+    }
+    MethodHandle create =
+        MethodHandles.permuteArguments(
+            constructor.asType(constructor.type().changeReturnType(Object.class)),
+            COPIER_TYPE,
+            reorder);
+    return MethodHandles.insertArguments(COPY_RECORD, 0, create);
+  }
+
+  // Returns a handle () Object creating an instance with the no-arg constructor if there is one
+  private static MethodHandle allocator(Class<?> type, MethodHandles.Lookup lookup)
+      throws ReflectiveOperationException {
+    if (Modifier.isAbstract(type.getModifiers())) {
+      throw new IllegalArgumentException("Cannot instantiate abstract " + type.getName());
+    }
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return lookup
+          .unreflectConstructor(constructor)
+          .asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException e) {
+      // Creates the instance as deserialization does, without running a constructor of the class
+      Class<?> factoryType = Class.forName("sun.reflect.ReflectionFactory");
+      Object factory = factoryType.getMethod("getReflectionFactory").invoke(null);
+      Constructor<?> constructor =
+          (Constructor<?>)
+              factoryType
+                  .getMethod("newConstructorForSerialization", Class.class, Constructor.class)
+                  .invoke(factory, type, Object.class.getDeclaredConstructor());
+      return lookup
+          .findVirtual(
+              Constructor.class,
+              "newInstance",
+              MethodType.methodType(Object.class, Object[].class))
+          .bindTo(constructor)
+          .asCollector(Object[].class, 0);
+    }
+  }
+
+  private static Object copyArray(
+      Class<?> componentType, boolean immutableElements, Object source, Context context) {
+    int length = Array.getLength(source);
+    Object copy = Array.newInstance(componentType, length);
+    register(copy, source, context);
+    if (componentType.isPrimitive() || immutableElements) {
+      System.arraycopy(source, 0, copy, 0, length);
+      return copy;
+    }
+    Object[] sourceElements = (Object[]) source;
+    Object[] copyElements = (Object[]) copy;
+    for (int i = 0; i < length; i++) {
+      copyElements[i] = copyValue(sourceElements[i], context);
+    }
+    return copy;
+  }
+
+  private static Object copyRecord(MethodHandle create, Object source, Context context)
+      throws Throwable {
+    enter(source, context);
+    Object copy = (Object) create.invokeExact(source, context);
+    register(copy, source, context);
+    return copy;
+  }
+
+  private static Object copyCollection(
+      MethodHandle factory, boolean immutable, Object source, Context context) throws Throwable {
+    Collection<?> sourceElements = (Collection<?>) source;
+    @SuppressWarnings("unchecked")
+    Collection<Object> copy =
+        immutable ? new ArrayList<>() : (Collection<Object>) factory.invoke(source);
+    if (immutable) {
+      enter(source, context);
+    } else {
+      register(copy, source, context);
+    }
+    for (Object element : sourceElements) {
+      copy.add(copyValue(element, context));
+    }
+    if (immutable) {
+      Object result = source instanceof List ? List.copyOf(copy) : Set.copyOf(copy);
+      register(result, source, context);
+      return result;
+    }
+    return copy;
+  }
+
+  private static Object copyMap(
+      MethodHandle factory, boolean immutable, Object source, Context context) throws Throwable {
+    Map<?, ?> sourceEntries = (Map<?, ?>) source;
+    @SuppressWarnings("unchecked")
+    Map<Object, Object> copy =
+        immutable ? new LinkedHashMap<>() : (Map<Object, Object>) factory.invoke(source);
+    if (immutable) {
+      enter(source, context);
+    } else {
+      register(copy, source, context);
+    }
+    for (Map.Entry<?, ?> entry : sourceEntries.entrySet()) {
+      copy.put(copyValue(entry.getKey(), context), copyValue(entry.getValue(), context));
+    }
+    if (immutable) {
+      Object result = Map.copyOf(copy);
+      register(result, source, context);
+      return result;
+    }
+    return copy;
+  }
+
+  // Returns a handle (Object source) Object creating an empty collection of the same class
+  private static MethodHandle collectionFactory(Class<?> type) throws ReflectiveOperationException {
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    MethodType factoryType = MethodType.methodType(Object.class, Object.class);
+    if (isImmutableCollection(type)) {
+      // Rebuilt with List.copyOf, Set.copyOf or Map.copyOf once the elements are copied
+      return null;
+    }
+    if (!Modifier.isPublic(type.getModifiers())) {
+      throw new IllegalArgumentException("Cannot create " + type.getName());
+    }
+    try {
+      // Sorted collections and priority queues keep their comparator
+      MethodHandle comparator =
+          lookup.findVirtual(type, "comparator", MethodType.methodType(Comparator.class));
+      MethodHandle constructor =
+          lookup.findConstructor(type, MethodType.methodType(void.class, Comparator.class));
+      return MethodHandles.filterArguments(constructor, 0, comparator).asType(factoryType);
+    } catch (NoSuchMethodException e) {
+      return MethodHandles.dropArguments(
+          lookup.findConstructor(type, MethodType.methodType(void.class)), 0, Object.class)
+          .asType(factoryType);
+    }
+  }
+
+  // Returns whether the instance fields of a hidden class, like the values captured by a lambda,
+  // are all immutable
+  private static boolean hasImmutableFields(Class<?> type) {
+    for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())
+            && (!Modifier.isFinal(field.getModifiers()) || !isImmutable(field.getType()))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isImmutableCollection(Class<?> type) {
+    return type.getName().startsWith("java.util.ImmutableCollections$");
+  }
+
+  private static boolean isJdkType(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.");
+  }
+
+  // Returns whether objects of the type can reach themselves through fields of the reachable types
+  private static boolean mayBeCyclic(Class<?> type, Set<Class<?>> path) {
+    if (isImmutable(type)) {
+      return false;
+    } else if (type.isArray()) {
+      return mayBeCyclic(type.getComponentType(), path);
+    } else if (!Modifier.isFinal(type.getModifiers()) || isJdkType(type) || !path.add(type)) {
+      // Any object could be stored in a field of a non-final or JDK type
+      return true;
+    }
+    Deque<Class<?>> hierarchy = new ArrayDeque<>();
+    for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+      hierarchy.push(current);
+    }
+    for (Class<?> current : hierarchy) {
+      for (Field field : current.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && mayBeCyclic(field.getType(), path)) {
+          return true;
+        }
+      }
+    }
+    path.remove(type);
+    return false;
+  }
+}
@@ -3,6 +3,8 @@ package com.example;
 import java.io.*;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -10,9 +12,8 @@ import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
-import java.sql.SQLException;
 import java.text.NumberFormat;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.*;
@@ -32,95 +33,175 @@ public class DesignPatterns {
 
   // Singleton Pattern - Ensuring only one instance of Logger
   private static final Logger logger = Logger.getLogger(DesignPatterns.class.getName());
+  private static final LazyLogger log = new LazyLogger(logger);
 
-  public static void singletonPatternExample() {
+  public static void singletonPatternExample() throws IOException {
     Handler consoleHandler = new ConsoleHandler();
-    consoleHandler.setFormatter(
-        new SimpleFormatter() {
-          @Override
-          public String format(LogRecord logRecord) {
-            return String.format(
-                "%1$tF %1$tT.%1$tL %2$s %3$s %4$s%n",
-                logRecord.getMillis(),
-                logRecord.getLevel().getName(),
-                logRecord.getSourceClassName(),
-                logRecord.getMessage());
-          }
-        });
-    logger.addHandler(consoleHandler);
+    consoleHandler.setFormatter(new LogFormatter());
+    logger.addHandler(new AsyncHandler(consoleHandler));
+
+    Handler fileHandler =
+        new MappedFileHandler(
+            Paths.get("/tmp"),
+            "design-patterns",
+            1 << 20,
+            64,
+            Duration.ofSeconds(1),
+            new BinaryLogFormat.Encoder());
+    logger.addHandler(new AsyncHandler(fileHandler));
     logger.setUseParentHandlers(false);
+    logger.setFilter(new SamplingFilter(100, 100, 1.0, Duration.ofSeconds(10)));
 
-    logger.info("Singleton Pattern Example: " + logger + " is a singleton instance");
+    log.info("Singleton Pattern Example: {0} is a singleton instance", logger);
   }
 
   // Factory Method Pattern - Using a KeyFactory with different providers
   public static void factoryPatternExample() throws NoSuchAlgorithmException {
-    KeyFactory rsaFactory = KeyFactory.getInstance("RSA");
-    logger.info("Factory Pattern Example: RSA Key provider = " + rsaFactory.getProvider());
-
-    KeyFactory dsaFactory = KeyFactory.getInstance("DSA");
-    logger.info("Factory Pattern Example: DSA Key provider = " + dsaFactory.getProvider());
+    KeyFactory rsaFactory = KeyFactoryCache.of("RSA").get();
+    log.info("Factory Pattern Example: RSA Key provider = {0}", rsaFactory.getProvider());
+
+    KeyFactory dsaFactory = KeyFactoryCache.of("DSA").get();
+    log.info("Factory Pattern Example: DSA Key provider = {0}", dsaFactory.getProvider());
+
+    FactoryRegistry<String, Collection<String>> registry =
+        FactoryRegistry.<String, Collection<String>>builder()
+            .register("list", ArrayList::new)
+            .register("set", HashSet::new)
+            .build();
+    log.info("Factory Pattern Example: Registry product = {0}", registry.create("set").getClass());
   }
 
   // Abstract Factory Pattern - Using NumberFormat as an abstract factory
   public static void abstractFactoryPatternExample() {
-    NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
-    logger.info("Abstract Factory Pattern Example: Currency format = " + currencyFormat);
+    NumberFormat currencyFormat = NumberFormats.currency();
+    log.info("Abstract Factory Pattern Example: Currency format = {0}", currencyFormat);
 
-    NumberFormat percentFormat = NumberFormat.getPercentInstance();
-    logger.info("Abstract Factory Pattern Example: Percent format = " + percentFormat);
+    NumberFormat percentFormat = NumberFormats.percent();
+    log.info("Abstract Factory Pattern Example: Percent format = {0}", percentFormat);
+
+    ColumnFormatter.Column prices =
+        new ColumnFormatter(currencyFormat).format(new long[] {199, 2_500, 100_000}, 2);
+    log.info("Abstract Factory Pattern Example: Formatted prices = {0}", prices);
   }
 
   // Builder Pattern - Using StringBuilder
   public static void builderPatternExample() {
-    StringBuilder builder = new StringBuilder();
-    builder.append("Hello").append(" World");
-    logger.info("Builder Pattern Example: StringBuilder output = " + builder);
+    try (StringBuilders.Lease lease = StringBuilders.acquire()) {
+      StringBuilder builder = lease.builder();
+      builder.append("Hello").append(" World");
+      // The pooled builder is reused once the lease is closed, so it is rendered before, but only
+      // if the message is logged
+      log.info(() -> "Builder Pattern Example: StringBuilder output = " + builder);
+    }
+
+    Utf8Builder utf8Builder = new Utf8Builder().append("Hello").append(' ').append("World");
+    log.info(
+        "Builder Pattern Example: Utf8Builder output = {0} ({1} bytes)",
+        utf8Builder,
+        utf8Builder.length());
   }
 
   // Prototype Pattern - Cloning an ArrayList
   public static void prototypePatternExample() {
-    List<String> originalList = new ArrayList<>(List.of("A", "B", "C"));
-    logger.info("Prototype Pattern Example: Original list = " + originalList);
-
-    List<String> clonedList = new ArrayList<>(originalList);
-    logger.info("Prototype Pattern Example: Cloned List = " + clonedList);
+    List<String> originalList = PersistentVector.of("A", "B", "C");
+    log.info("Prototype Pattern Example: Original list = {0}", originalList);
+
+    // Persistent lists are never changed, so the clone shares every element with the original
+    PersistentVector<String> clonedList = PersistentVector.copyOf(originalList);
+    log.info("Prototype Pattern Example: Cloned List = {0}", clonedList);
+    log.info("Prototype Pattern Example: Modified clone = {0}", clonedList.with(2, "D"));
+
+    // The lazy clone shares the array of the template until one of them is changed
+    LazyCloneList<String> templateList = LazyCloneList.copyOf(originalList);
+    LazyCloneList<String> lazyClone = templateList.clone();
+    lazyClone.add("D");
+    log.info("Prototype Pattern Example: Lazy clone = {0}", lazyClone);
+
+    // The deep clone also copies the lists held by the template, with a copier cached per class
+    Map<String, List<String>> templateGraph = new HashMap<>();
+    templateGraph.put("letters", new ArrayList<>(originalList));
+    Map<String, List<String>> deepClone = DeepCloner.deepCopy(templateGraph);
+    deepClone.get("letters").add("D");
+    log.info(
+        "Prototype Pattern Example: Deep clone = {0}, template = {1}", deepClone, templateGraph);
   }
 
   // Adapter Pattern - Adapting the array to a List using Arrays.asList()
   public static void adapterPatternExample() {
     String[] originalArray = {"Adapter", "Pattern", "Example"};
-    logger.info("Adapter Pattern Example: Original array = " + originalArray);
+    log.info("Adapter Pattern Example: Original array = {0}", originalArray);
 
     List<String> adaptedList = Arrays.asList(originalArray);
-    logger.info("Adapter Pattern Example: Adapted list = " + adaptedList);
+    log.info("Adapter Pattern Example: Adapted list = {0}", adaptedList);
+
+    // Primitive arrays are adapted without boxing the values
+    IntList lengths = PrimitiveLists.asIntList(3, 7, 7);
+    log.info(
+        "Adapter Pattern Example: Adapted int list = {0}, sum = {1}",
+        lengths,
+        lengths.stream().sum());
+
+    // Records of a price at byte 0 and a quantity at byte 8 are kept off the heap and adapted to
+    // a List of flyweights
+    OffHeapRecordList<OffHeapRecordList.Record> trades =
+        OffHeapRecordList.allocate(3, 16, OffHeapRecordList.Record::new);
+    for (int i = 0; i < trades.size(); i++) {
+      trades.get(i).putDouble(0, 1.5 * (i + 1));
+      trades.get(i).putInt(8, 10);
+    }
+    log.info(
+        "Adapter Pattern Example: Off-heap list of {0} records, notional = {1}",
+        trades.size(),
+        trades.recordStream().mapToDouble(trade -> trade.getDouble(0) * trade.getInt(8)).sum());
+
+    // The received bytes are matched as chars without decoding them into a String
+    byte[] received = "GET /index.html 200".getBytes(StandardCharsets.US_ASCII);
+    Matcher matcher =
+        Pattern.compile("(\\S+) (\\S+) (\\d+)")
+            .matcher(ByteViews.asCharSequence(ByteBuffer.wrap(received)));
+    if (matcher.matches()) {
+      log.info("Adapter Pattern Example: Adapted bytes request path = {0}", matcher.group(2));
+    }
   }
 
   // Bridge Pattern - Using the Connection abstraction with different Driver implementations
   public static void bridgePatternExample() {
     // This will log an error unless we add org.xerial:sqlite-jdbc dependency
-    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:/tmp/test1.db")) {
-      DatabaseMetaData metaData = connection.getMetaData();
-      logger.info(
-          "Bridge Pattern Example: Connected to "
-              + connection
-              + " using "
-              + metaData.getDriverName());
-    } catch (SQLException e) {
-      logger.severe(
-          "Bridge Pattern Example: Got error while connecting to sqlite : " + e.getMessage());
-    }
+    logDriverName(BridgeDatabases.SQLITE, "sqlite");
 
     // This will log an error unless we add com.h2database:h2 dependency
-    try (Connection connection = DriverManager.getConnection("jdbc:h2:file:/tmp/test2.db")) {
-      DatabaseMetaData metaData = connection.getMetaData();
-      logger.info(
-          "Bridge Pattern Example: Connected to "
-              + connection
-              + " using "
-              + metaData.getDriverName());
-    } catch (SQLException e) {
-      logger.severe("Bridge Pattern Example: Got error while connecting to h2 : " + e.getMessage());
+    logDriverName(BridgeDatabases.H2, "h2");
+  }
+
+  // The pooled connections and executors are created once, on the first use of the holder
+  private static final class BridgeDatabases {
+    static final AsyncJdbcExecutor SQLITE =
+        new AsyncJdbcExecutor(
+            new PooledDataSource("jdbc:sqlite:/tmp/test1.db", new Properties(), 4));
+    static final AsyncJdbcExecutor H2 =
+        new AsyncJdbcExecutor(
+            new PooledDataSource("jdbc:h2:file:/tmp/test2.db", new Properties(), 4));
+  }
+
+  private static void logDriverName(AsyncJdbcExecutor executor, String database) {
+    try {
+      executor
+          .submit(
+              connection -> {
+                DatabaseMetaData metaData = connection.getMetaData();
+                log.info(
+                    "Bridge Pattern Example: Connected to {0} using {1}",
+                    connection,
+                    metaData.getDriverName());
+                return metaData;
+              })
+          .join();
+    } catch (CompletionException e) {
+      log.log(
+          Level.SEVERE,
+          "Bridge Pattern Example: Got error while connecting to {0} : {1}",
+          database,
+          e.getCause().getMessage());
     }
   }
 
@@ -133,7 +214,7 @@ public class DesignPatterns {
     composite.add(component1);
     composite.add(component2);
 
-    logger.info("Composite Pattern Example: Composite collection = " + composite);
+    log.info("Composite Pattern Example: Composite collection = {0}", composite);
   }
 
   // Decorator Pattern - Using decorators of ByteArrayInputStream
@@ -141,47 +222,47 @@ public class DesignPatterns {
     byte[] bytes = "Hello World!".getBytes();
     try (InputStream inputStream = new ByteArrayInputStream(bytes)) {
       InputStream bufferedInputStream = new BufferedInputStream(inputStream);
-      logger.info(
-          "Decorator Pattern Example: Buffered input stream = "
-              + new String(bufferedInputStream.readAllBytes()));
+      log.info(
+          "Decorator Pattern Example: Buffered input stream = {0}",
+          new String(bufferedInputStream.readAllBytes()));
     }
 
     try (InputStream inputStream = new ByteArrayInputStream(bytes)) {
       InputStream dataInputStream = new DataInputStream(inputStream);
-      logger.info(
-          "Decorator Pattern Example: Data input stream = "
-              + new String(dataInputStream.readAllBytes()));
+      log.info(
+          "Decorator Pattern Example: Data input stream = {0}",
+          new String(dataInputStream.readAllBytes()));
     }
   }
 
   // Facade Pattern - Using Files API which is a facade for file related operations
   public static void facadePatternExample() throws IOException {
     Path path = Files.writeString(Paths.get("/tmp/testFile"), "Hello World!");
-    logger.info("Facade Pattern Example: File write path = " + path);
+    log.info("Facade Pattern Example: File write path = {0}", path);
 
     String content = Files.readString(Paths.get("/tmp/testFile"));
-    logger.info("Facade Pattern Example: File content = " + content);
+    log.info("Facade Pattern Example: File content = {0}", content);
 
     Files.delete(path);
-    logger.info("Facade Pattern Example: Deleted file " + path);
+    log.info("Facade Pattern Example: Deleted file {0}", path);
   }
 
   // Flyweight Pattern - Using Integer.valueOf which caches values in the range -128 to 127
   public static void flyweightPatternExample() {
     Integer a = Integer.valueOf(100);
     Integer b = Integer.valueOf(100);
-    logger.info("Flyweight Pattern Example: Using cache: " + (a == b));
+    log.info("Flyweight Pattern Example: Using cache: {0}", a == b);
 
     Integer c = Integer.valueOf(200);
     Integer d = Integer.valueOf(200);
-    logger.info("Flyweight Pattern Example: Using cache: " + (c == d));
+    log.info("Flyweight Pattern Example: Using cache: {0}", c == d);
   }
 
   // Proxy Pattern - Using java.lang.reflect.Proxy to create a mocked instance of list
   public static void proxyPatternExample() {
     InvocationHandler mockedInvocationHandler =
         (proxy, method, args) -> {
-          logger.info("Proxy Pattern Example: Called proxy method = " + method.getName());
+          log.info("Proxy Pattern Example: Called proxy method = {0}", method.getName());
           return 10;
         };
 
@@ -190,7 +271,7 @@ public class DesignPatterns {
             Proxy.newProxyInstance(
                 List.class.getClassLoader(), new Class<?>[] {List.class}, mockedInvocationHandler);
 
-    logger.info("Proxy Pattern Example: Mocked value = " + mockedListInstance.size());
+    log.info("Proxy Pattern Example: Mocked value = {0}", mockedListInstance.size());
   }
 
   // Chain of Responsibility Pattern - Using Blocking Queues to show chain of handlers
@@ -208,8 +289,8 @@ public class DesignPatterns {
             String request;
             try {
               request = queue1.take();
-              logger.info(
-                  "Chain of Responsibility Pattern Example: " + request + " handled by handler1..");
+              log.info(
+                  "Chain of Responsibility Pattern Example: {0} handled by handler1..", request);
               queue2.put(request);
               if ("STOP".equals(request)) {
                 break;
@@ -225,8 +306,8 @@ public class DesignPatterns {
             String request;
             try {
               request = queue2.take();
-              logger.info(
-                  "Chain of Responsibility Pattern Example: " + request + " handled by handler2..");
+              log.info(
+                  "Chain of Responsibility Pattern Example: {0} handled by handler2..", request);
               if ("STOP".equals(request)) {
                 break;
               }
@@ -241,7 +322,7 @@ public class DesignPatterns {
 
   // Command Pattern - Using Runnable to encapsulate a command
   public static void commandPatternExample() {
-    Runnable runnable = () -> logger.info("Command Pattern Example: Running encapsulated command");
+    Runnable runnable = () -> log.info("Command Pattern Example: Running encapsulated command");
     ExecutorService executor = Executors.newSingleThreadExecutor();
     executor.submit(runnable);
     executor.shutdown();
@@ -251,7 +332,7 @@ public class DesignPatterns {
   public static void interpreterPatternExample() {
     Pattern pattern = Pattern.compile("\\d+");
     Matcher matcher = pattern.matcher("123ABC");
-    logger.info("Interpreter Pattern Example: Regex pattern matched = " + matcher.find());
+    log.info("Interpreter Pattern Example: Regex pattern matched = {0}", matcher.find());
   }
 
   // Iterator Pattern - Creating a custom Iterator
@@ -273,7 +354,7 @@ public class DesignPatterns {
         };
 
     while (itr.hasNext()) {
-      logger.info("Iterator Pattern Example: Next element = " + itr.next());
+      log.info("Iterator Pattern Example: Next element = {0}", itr.next());
     }
   }
 
@@ -285,7 +366,7 @@ public class DesignPatterns {
         new TimerTask() {
           @Override
           public void run() {
-            logger.info("Mediator Pattern Example: Executing Task 1..");
+            log.info("Mediator Pattern Example: Executing Task 1..");
           }
         };
 
@@ -293,7 +374,7 @@ public class DesignPatterns {
         new TimerTask() {
           @Override
           public void run() {
-            logger.info("Mediator Pattern Example: Executing Task 2..");
+            log.info("Mediator Pattern Example: Executing Task 2..");
             timer.cancel();
           }
         };
@@ -313,17 +394,17 @@ public class DesignPatterns {
 
           @Override
           public void onNext(String item) {
-            logger.info("Observed Pattern Example: Next item = " + item);
+            log.info("Observed Pattern Example: Next item = {0}", item);
           }
 
           @Override
           public void onError(Throwable throwable) {
-            logger.severe("Observed Pattern Example: Got error : " + throwable.getMessage());
+            log.severe("Observed Pattern Example: Got error : {0}", throwable.getMessage());
           }
 
           @Override
           public void onComplete() {
-            logger.info("Observed Pattern Example: No more Items..");
+            log.info("Observed Pattern Example: No more Items..");
           }
         };
 
@@ -336,18 +417,18 @@ public class DesignPatterns {
 
   // State Pattern - Creating a child thread and checking its states
   public static void statePatternExample() {
-    Thread thread = new Thread(() -> logger.info("State Pattern Example: Executing runnable.."));
-    logger.info("State Pattern Example: Thread state = " + thread.getState());
+    Thread thread = new Thread(() -> log.info("State Pattern Example: Executing runnable.."));
+    log.info("State Pattern Example: Thread state = {0}", thread.getState());
 
     thread.start();
-    logger.info("State Pattern Example: Thread state = " + thread.getState());
+    log.info("State Pattern Example: Thread state = {0}", thread.getState());
 
     try {
       thread.join();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     }
-    logger.info("State Pattern Example: Thread state = " + thread.getState());
+    log.info("State Pattern Example: Thread state = {0}", thread.getState());
   }
 
   // Strategy Pattern - Using Comparators for a list of strings
@@ -360,10 +441,10 @@ public class DesignPatterns {
         };
     List<String> list = Arrays.asList("Alice", "Bob", "Cody");
     list.sort(comparator1);
-    logger.info("Strategy Pattern Example: Lexicographically sorted list = " + list);
+    log.info("Strategy Pattern Example: Lexicographically sorted list = {0}", list);
 
     list.sort(comparator2);
-    logger.info("Strategy Pattern Example: Length-sorted list = " + list);
+    log.info("Strategy Pattern Example: Length-sorted list = {0}", list);
   }
 
   // Template Method Pattern - Using AbstractList template
@@ -393,7 +474,7 @@ public class DesignPatterns {
     customList.add(43);
     customList.add(44);
 
-    logger.info("Template Method Example: Size of custom list = " + customList.size());
+    log.info("Template Method Example: Size of custom list = {0}", customList.size());
   }
 
   public static void main(String[] args) throws Exception {
@@ -0,0 +1,65 @@
+package com.example;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This interface is an ordered list of {@code double} values which are read and written without
+ * boxing, as a primitive counterpart of {@link List List&lt;Double&gt;}.
+ *
+ * <p>{@link PrimitiveLists#asDoubleList(double...)} adapts an array. {@link #boxed()} returns a
+ * {@code List<Double>} view for code which needs one, and only that view boxes the values.
+ */
+public interface DoubleList {
+
+  int size();
+
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+
+  double getDouble(int index);
+
+  /** Replaces the value at the index, and returns the previous value. */
+  double setDouble(int index, double value);
+
+  default PrimitiveIterator.OfDouble iterator() {
+    return new PrimitiveIterator.OfDouble() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size();
+      }
+
+      @Override
+      public double nextDouble() {
+        if (index >= size()) {
+          throw new NoSuchElementException();
+        }
+        return getDouble(index++);
+      }
+    };
+  }
+
+  Spliterator.OfDouble spliterator();
+
+  default DoubleStream stream() {
+    return StreamSupport.doubleStream(spliterator(), false);
+  }
+
+  default double[] toArray() {
+    double[] array = new double[size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = getDouble(i);
+    }
+    return array;
+  }
+
+  /** Returns a {@code List<Double>} view of the values, which boxes them when they are read. */
+  List<Double> boxed();
+}
@@ -0,0 +1,132 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class resolves the {@link Driver} of a JDBC URL once per URL prefix, which is the URL up to
+ * the colon after the subprotocol, like {@code jdbc:h2:}.
+ *
+ * <p>{@link DriverManager#getConnection(String, Properties)} iterates over all the registered
+ * drivers on every call, and when none accepts the URL it builds an exception with a full stack
+ * trace. The resolver only iterates over the drivers for a prefix it has not resolved yet, and
+ * caches a missing driver for the retry interval, during which connecting fails at once with a
+ * {@link NoSuitableDriverException} without a stack trace. A resolved driver is asked again when it
+ * does not accept a URL of its prefix. Resolvers are thread-safe.
+ */
+public final class DriverResolver {
+
+  private static final DriverResolver DEFAULT = new DriverResolver(Duration.ofSeconds(30));
+
+  private final long retryIntervalNanos;
+  private final ConcurrentHashMap<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+  public DriverResolver(Duration retryInterval) {
+    if (retryInterval.isNegative()) {
+      throw new IllegalArgumentException("Invalid retry interval : " + retryInterval);
+    }
+    this.retryIntervalNanos = retryInterval.toNanos();
+  }
+
+  /** Returns the resolver shared by the pools, which retries missing drivers every 30 seconds. */
+  public static DriverResolver getDefault() {
+    return DEFAULT;
+  }
+
+  // The driver of a prefix, or the time at which a missing driver is looked up again
+  private static final class Resolution {
+    final Driver driver;
+    final long retryNanos;
+
+    Resolution(Driver driver, long retryNanos) {
+      this.driver = driver;
+      this.retryNanos = retryNanos;
+    }
+  }
+
+  /**
+   * Returns the driver accepting the URL.
+   *
+   * @throws NoSuitableDriverException if no registered driver accepts the URL
+   */
+  public Driver resolve(String url) throws SQLException {
+    String prefix = prefixOf(url);
+    Resolution resolution = resolutions.get(prefix);
+    if (resolution != null) {
+      if (resolution.driver != null && resolution.driver.acceptsURL(url)) {
+        return resolution.driver;
+      } else if (resolution.driver == null && System.nanoTime() - resolution.retryNanos < 0) {
+        throw new NoSuitableDriverException(url);
+      }
+    }
+
+    Driver driver = scan(url);
+    if (driver == null) {
+      resolutions.put(prefix, new Resolution(null, System.nanoTime() + retryIntervalNanos));
+      throw new NoSuitableDriverException(url);
+    }
+    resolutions.put(prefix, new Resolution(driver, 0));
+    return driver;
+  }
+
+  /**
+   * Connects to the URL with the driver accepting it.
+   *
+   * @throws NoSuitableDriverException if no registered driver accepts the URL
+   */
+  public Connection connect(String url, Properties info) throws SQLException {
+    Connection connection = resolve(url).connect(url, info);
+    if (connection == null) {
+      throw new NoSuitableDriverException(url);
+    }
+    return connection;
+  }
+
+  /** Forgets the resolved and missing drivers, e.g. after registering a driver. */
+  public void clear() {
+    resolutions.clear();
+  }
+
+  private static Driver scan(String url) {
+    return DriverManager.drivers()
+        .filter(
+            driver -> {
+              try {
+                return driver.acceptsURL(url);
+              } catch (SQLException e) {
+                return false;
+              }
+            })
+        .findFirst()
+        .orElse(null);
+  }
+
+  private static String prefixOf(String url) {
+    int subprotocolStart = url.indexOf(':') + 1;
+    int subprotocolEnd = subprotocolStart > 0 ? url.indexOf(':', subprotocolStart) : -1;
+    return subprotocolEnd < 0 ? url : url.substring(0, subprotocolEnd + 1);
+  }
+
+  /**
+   * The exception thrown when no driver accepts a URL, with the message and SQL state of the
+   * exception of {@link DriverManager}. It has no stack trace, as it is expected to be thrown often
+   * while a driver is missing.
+   */
+  public static final class NoSuitableDriverException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public NoSuitableDriverException(String url) {
+      super("No suitable driver found for " + url, "08001");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
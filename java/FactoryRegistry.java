@@ -0,0 +1,189 @@
+package com.example;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * This class is a general purpose registry of factories, where products are registered by key and
+ * created through a {@link Supplier} resolved once at registration time.
+ *
+ * <p>Products registered by class are bound to their no-arg constructor with {@link
+ * LambdaMetafactory}, so creating them is a plain constructor call which the JIT can inline,
+ * instead of the reflective lookup done by e.g. {@code KeyFactory.getInstance(String)}. The keys
+ * are placed in an open addressing table whose size and hash multiplier are searched for a
+ * collision free layout, so a lookup is usually a single probe. Callers can also resolve the
+ * {@link #indexOf(Object) index} of a key once and create products by index.
+ *
+ * @param <K> the type of the keys
+ * @param <T> the type of the products
+ */
+public final class FactoryRegistry<K, T> {
+
+  private static final int MAX_TABLE_FACTOR = 8;
+  private static final int[] MULTIPLIERS = {
+    0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C, 0xFD7046C5, 0xB55A4F09
+  };
+
+  private final Object[] keys;
+  private final Supplier<? extends T>[] suppliers;
+  private final int multiplier;
+  private final int shift;
+  private final int mask;
+  private final Set<K> keySet;
+
+  private FactoryRegistry(Map<K, Supplier<? extends T>> products) {
+    int minimumSize = Math.max(2, Integer.highestOneBit(products.size() * 2 - 1) << 1);
+    int size = minimumSize;
+    int chosenMultiplier = MULTIPLIERS[0];
+    search:
+    for (; size <= minimumSize * MAX_TABLE_FACTOR; size <<= 1) {
+      for (int candidate : MULTIPLIERS) {
+        if (isCollisionFree(products.keySet(), candidate, size)) {
+          chosenMultiplier = candidate;
+          break search;
+        }
+      }
+    }
+    if (size > minimumSize * MAX_TABLE_FACTOR) {
+      size = minimumSize;
+    }
+
+    this.multiplier = chosenMultiplier;
+    this.shift = 32 - Integer.numberOfTrailingZeros(size);
+    this.mask = size - 1;
+    this.keys = new Object[size];
+    @SuppressWarnings("unchecked")
+    Supplier<? extends T>[] table = (Supplier<? extends T>[]) new Supplier<?>[size];
+    this.suppliers = table;
+    for (Map.Entry<K, Supplier<? extends T>> product : products.entrySet()) {
+      int index = slot(product.getKey().hashCode());
+      while (keys[index] != null) {
+        index = (index + 1) & mask;
+      }
+      keys[index] = product.getKey();
+      suppliers[index] = product.getValue();
+    }
+    this.keySet = Collections.unmodifiableSet(products.keySet());
+  }
+
+  public static <K, T> Builder<K, T> builder() {
+    return new Builder<>();
+  }
+
+  /** Creates the product registered with the key. */
+  public T create(K key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      throw new IllegalArgumentException("No product registered for key : " + key);
+    }
+    return suppliers[index].get();
+  }
+
+  /** Creates the product registered at an index returned by {@link #indexOf(Object)}. */
+  public T create(int index) {
+    return suppliers[index].get();
+  }
+
+  /** Returns the index of the key in the registry, or -1 if no product is registered for it. */
+  public int indexOf(K key) {
+    int index = slot(key.hashCode());
+    while (true) {
+      Object candidate = keys[index];
+      if (candidate == null) {
+        return -1;
+      } else if (candidate == key || candidate.equals(key)) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  public Set<K> keys() {
+    return keySet;
+  }
+
+  private int slot(int hashCode) {
+    return slot(hashCode, multiplier, shift);
+  }
+
+  private static int slot(int hashCode, int multiplier, int shift) {
+    return (hashCode * multiplier) >>> shift;
+  }
+
+  private static boolean isCollisionFree(Set<?> keys, int multiplier, int size) {
+    int shift = 32 - Integer.numberOfTrailingZeros(size);
+    boolean[] used = new boolean[size];
+    for (Object key : keys) {
+      int index = slot(key.hashCode(), multiplier, shift);
+      if (used[index]) {
+        return false;
+      }
+      used[index] = true;
+    }
+    return true;
+  }
+
+  /** Collects the products of a {@link FactoryRegistry}. */
+  public static final class Builder<K, T> {
+
+    private final Map<K, Supplier<? extends T>> products = new LinkedHashMap<>();
+
+    private Builder() {}
+
+    public Builder<K, T> register(K key, Supplier<? extends T> supplier) {
+      Objects.requireNonNull(key, "key");
+      Objects.requireNonNull(supplier, "supplier");
+      if (products.putIfAbsent(key, supplier) != null) {
+        throw new IllegalArgumentException("Product already registered for key : " + key);
+      }
+      return this;
+    }
+
+    /** Registers the public no-arg constructor of a public class. */
+    public Builder<K, T> register(K key, Class<? extends T> type) {
+      return register(key, type, MethodHandles.lookup());
+    }
+
+    /**
+     * Registers the no-arg constructor of a class, which must be accessible from the lookup, e.g.
+     * {@code MethodHandles.lookup()} of the class registering it.
+     */
+    public Builder<K, T> register(K key, Class<? extends T> type, MethodHandles.Lookup lookup) {
+      return register(key, constructorSupplier(type, lookup));
+    }
+
+    public FactoryRegistry<K, T> build() {
+      if (products.isEmpty()) {
+        throw new IllegalStateException("No product registered");
+      }
+      return new FactoryRegistry<>(new LinkedHashMap<>(products));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <P> Supplier<P> constructorSupplier(Class<P> type, MethodHandles.Lookup lookup) {
+      try {
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+        CallSite callSite =
+            LambdaMetafactory.metafactory(
+                lookup,
+                "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class),
+                constructor,
+                MethodType.methodType(type));
+        return (Supplier<P>) callSite.getTarget().invoke();
+      } catch (Throwable e) {
+        throw new IllegalArgumentException("Cannot bind the constructor of " + type.getName(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.example;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * This class formats fixed-point {@code long} values, like amounts in minor currency units or
+ * scaled percentages, directly into a caller supplied {@code char[]} or {@link ByteBuffer},
+ * without creating the {@code String}, {@code StringBuffer} and {@code FieldPosition} objects
+ * that {@link DecimalFormat} needs for every value.
+ *
+ * <p>A formatter is built from a {@link DecimalFormat} and copies its prefixes, suffixes,
+ * grouping, fraction digits, multiplier, rounding mode and symbols, so the output matches {@code
+ * format.format(BigDecimal.valueOf(unscaled, scale))} of the same format. Formats using exponents,
+ * a multiplier other than a power of ten or a rounding mode other than {@code HALF_EVEN} and
+ * {@code HALF_UP} are rejected. Formatters are immutable and thread-safe.
+ */
+public final class FixedPointFormatter {
+
+  private static final int MAX_SCALE = 18;
+  private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final char[] positivePrefix;
+  private final char[] positiveSuffix;
+  private final char[] negativePrefix;
+  private final char[] negativeSuffix;
+  private final char zeroDigit;
+  private final char groupingSeparator;
+  private final char decimalSeparator;
+  private final int groupingSize;
+  private final boolean decimalSeparatorAlwaysShown;
+  private final boolean roundHalfEven;
+  private final int minimumIntegerDigits;
+  private final int minimumFractionDigits;
+  private final int maximumFractionDigits;
+  private final int scale;
+  private final int maxLength;
+  private final ThreadLocal<char[]> scratch;
+
+  private FixedPointFormatter(DecimalFormat format, int scale) {
+    String pattern = format.toPattern();
+    if (pattern.indexOf('E') >= 0) {
+      throw new IllegalArgumentException("Exponent patterns are not supported : " + pattern);
+    }
+    RoundingMode roundingMode = format.getRoundingMode();
+    if (roundingMode != RoundingMode.HALF_EVEN && roundingMode != RoundingMode.HALF_UP) {
+      throw new IllegalArgumentException("Unsupported rounding mode : " + roundingMode);
+    }
+    int multiplierDigits = powerOfTen(format.getMultiplier());
+    if (scale < 0 || scale > MAX_SCALE || scale - multiplierDigits < -MAX_SCALE) {
+      throw new IllegalArgumentException("Unsupported scale : " + scale);
+    }
+    if (format.getMaximumIntegerDigits() < 19 + multiplierDigits) {
+      throw new IllegalArgumentException("Truncated integer digits are not supported");
+    }
+
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    boolean currencyFormat = pattern.indexOf('\u00A4') >= 0;
+    this.positivePrefix = format.getPositivePrefix().toCharArray();
+    this.positiveSuffix = format.getPositiveSuffix().toCharArray();
+    this.negativePrefix = format.getNegativePrefix().toCharArray();
+    this.negativeSuffix = format.getNegativeSuffix().toCharArray();
+    this.zeroDigit = symbols.getZeroDigit();
+    this.groupingSeparator =
+        currencyFormat ? symbols.getMonetaryGroupingSeparator() : symbols.getGroupingSeparator();
+    this.decimalSeparator =
+        currencyFormat ? symbols.getMonetaryDecimalSeparator() : symbols.getDecimalSeparator();
+    this.groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+    this.decimalSeparatorAlwaysShown = format.isDecimalSeparatorAlwaysShown();
+    this.roundHalfEven = roundingMode == RoundingMode.HALF_EVEN;
+    this.minimumIntegerDigits = Math.min(format.getMinimumIntegerDigits(), 64);
+    this.minimumFractionDigits = Math.min(format.getMinimumFractionDigits(), 64);
+    this.maximumFractionDigits = format.getMaximumFractionDigits();
+    this.scale = scale - multiplierDigits;
+
+    int integerDigits = Math.max(19 + Math.max(multiplierDigits - scale, 0), minimumIntegerDigits);
+    int fractionDigits = Math.max(Math.min(this.scale, maximumFractionDigits), 0);
+    this.maxLength =
+        Math.max(positivePrefix.length, negativePrefix.length)
+            + integerDigits * 2
+            + 1
+            + Math.max(fractionDigits, minimumFractionDigits)
+            + Math.max(positiveSuffix.length, negativeSuffix.length);
+    this.scratch = ThreadLocal.withInitial(() -> new char[maxLength]);
+  }
+
+  /** Returns a formatter using the given format for values with {@code scale} fraction digits. */
+  public static FixedPointFormatter of(NumberFormat format, int scale) {
+    if (!(format instanceof DecimalFormat)) {
+      throw new IllegalArgumentException("Not a DecimalFormat : " + format.getClass().getName());
+    }
+    return new FixedPointFormatter((DecimalFormat) format, scale);
+  }
+
+  /** Returns a currency formatter for amounts in the minor unit of the locale's currency. */
+  public static FixedPointFormatter currency(Locale locale) {
+    NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+    Currency currency = format.getCurrency();
+    int fractionDigits = currency == null ? 0 : Math.max(currency.getDefaultFractionDigits(), 0);
+    return of(format, fractionDigits);
+  }
+
+  /** Returns a percent formatter for ratios with {@code scale} fraction digits. */
+  public static FixedPointFormatter percent(Locale locale, int scale) {
+    return of(NumberFormat.getPercentInstance(locale), scale);
+  }
+
+  /** Returns the maximum number of chars written for a single value. */
+  public int maxLength() {
+    return maxLength;
+  }
+
+  /**
+   * Formats the value {@code unscaled / 10^scale} into the array.
+   *
+   * @return the offset after the last char written
+   * @throws IndexOutOfBoundsException if the array cannot hold {@link #maxLength()} chars at the
+   *     offset
+   * @throws ArithmeticException if the format multiplier overflows the value
+   */
+  public int format(long unscaled, char[] destination, int offset) {
+    if (unscaled == Long.MIN_VALUE) {
+      throw new IllegalArgumentException("Long.MIN_VALUE is not supported");
+    }
+    if (offset < 0 || destination.length - offset < maxLength) {
+      throw new IndexOutOfBoundsException("Not enough space at offset " + offset);
+    }
+
+    boolean negative = unscaled < 0;
+    long magnitude = Math.abs(unscaled);
+    int fractionDigits;
+    if (scale < 0) {
+      magnitude = Math.multiplyExact(magnitude, POWERS_OF_TEN[-scale]);
+      fractionDigits = 0;
+    } else if (scale > maximumFractionDigits) {
+      magnitude = round(magnitude, scale - maximumFractionDigits);
+      fractionDigits = maximumFractionDigits;
+    } else {
+      fractionDigits = scale;
+    }
+
+    long integerPart = magnitude / POWERS_OF_TEN[fractionDigits];
+    long fractionPart = magnitude % POWERS_OF_TEN[fractionDigits];
+    int shownFractionDigits = fractionDigits;
+    while (shownFractionDigits > minimumFractionDigits && fractionPart % 10 == 0) {
+      fractionPart /= 10;
+      shownFractionDigits--;
+    }
+    int significantFractionDigits = shownFractionDigits;
+    shownFractionDigits = Math.max(shownFractionDigits, minimumFractionDigits);
+
+    int position = offset;
+    position = append(negative ? negativePrefix : positivePrefix, destination, position);
+
+    int integerDigits = Math.max(digitCount(integerPart), minimumIntegerDigits);
+    if (integerDigits == 0 && shownFractionDigits == 0) {
+      integerDigits = 1;
+    }
+    int separators = groupingSize > 0 ? (integerDigits - 1) / groupingSize : 0;
+    int end = position + integerDigits + Math.max(separators, 0);
+    int index = end;
+    for (int digit = 0; digit < integerDigits; digit++) {
+      if (digit > 0 && groupingSize > 0 && digit % groupingSize == 0) {
+        destination[--index] = groupingSeparator;
+      }
+      destination[--index] = (char) (zeroDigit + integerPart % 10);
+      integerPart /= 10;
+    }
+    position = end;
+
+    if (shownFractionDigits > 0 || decimalSeparatorAlwaysShown) {
+      destination[position++] = decimalSeparator;
+    }
+    for (int digit = significantFractionDigits - 1; digit >= 0; digit--) {
+      destination[position + digit] = (char) (zeroDigit + fractionPart % 10);
+      fractionPart /= 10;
+    }
+    position += significantFractionDigits;
+    for (int digit = significantFractionDigits; digit < shownFractionDigits; digit++) {
+      destination[position++] = zeroDigit;
+    }
+
+    return append(negative ? negativeSuffix : positiveSuffix, destination, position);
+  }
+
+  /** Formats the value {@code unscaled / 10^scale} into the buffer encoded as UTF-8. */
+  public void format(long unscaled, ByteBuffer destination) {
+    char[] chars = scratch.get();
+    int length = format(unscaled, chars, 0);
+    for (int i = 0; i < length; i++) {
+      char c = chars[i];
+      if (c < 0x80) {
+        destination.put((byte) c);
+      } else if (c < 0x800) {
+        destination.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length) {
+        int codePoint = Character.toCodePoint(c, chars[++i]);
+        destination
+            .put((byte) (0xF0 | codePoint >> 18))
+            .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+            .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+            .put((byte) (0x80 | codePoint & 0x3F));
+      } else {
+        destination
+            .put((byte) (0xE0 | c >> 12))
+            .put((byte) (0x80 | c >> 6 & 0x3F))
+            .put((byte) (0x80 | c & 0x3F));
+      }
+    }
+  }
+
+  /** Formats the value into a new string, for callers which need one anyway. */
+  public String format(long unscaled) {
+    char[] chars = scratch.get();
+    return new String(chars, 0, format(unscaled, chars, 0));
+  }
+
+  // Drops the given number of trailing digits with the rounding mode of the format
+  private long round(long magnitude, int droppedDigits) {
+    if (droppedDigits > MAX_SCALE) {
+      return 0;
+    }
+    long divisor = POWERS_OF_TEN[droppedDigits];
+    long quotient = magnitude / divisor;
+    long twiceRemainder = (magnitude % divisor) * 2;
+    if (twiceRemainder > divisor
+        || (twiceRemainder == divisor && (!roundHalfEven || (quotient & 1) == 1))) {
+      quotient++;
+    }
+    return quotient;
+  }
+
+  private static int append(char[] chars, char[] destination, int position) {
+    System.arraycopy(chars, 0, destination, position, chars.length);
+    return position + chars.length;
+  }
+
+  private static int digitCount(long value) {
+    int count = 0;
+    while (value != 0) {
+      value /= 10;
+      count++;
+    }
+    return count;
+  }
+
+  private static int powerOfTen(int multiplier) {
+    int digits = 0;
+    for (long power = 1; power <= multiplier; power *= 10, digits++) {
+      if (power == multiplier) {
+        return digits;
+      }
+    }
+    throw new IllegalArgumentException("Multiplier is not a power of ten : " + multiplier);
+  }
+}
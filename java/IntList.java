@@ -0,0 +1,65 @@
+package com.example;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This interface is an ordered list of {@code int} values which are read and written without
+ * boxing, as a primitive counterpart of {@link List List&lt;Integer&gt;}.
+ *
+ * <p>{@link PrimitiveLists#asIntList(int...)} adapts an array. {@link #boxed()} returns a {@code
+ * List<Integer>} view for code which needs one, and only that view boxes the values.
+ */
+public interface IntList {
+
+  int size();
+
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+
+  int getInt(int index);
+
+  /** Replaces the value at the index, and returns the previous value. */
+  int setInt(int index, int value);
+
+  default PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size();
+      }
+
+      @Override
+      public int nextInt() {
+        if (index >= size()) {
+          throw new NoSuchElementException();
+        }
+        return getInt(index++);
+      }
+    };
+  }
+
+  Spliterator.OfInt spliterator();
+
+  default IntStream stream() {
+    return StreamSupport.intStream(spliterator(), false);
+  }
+
+  default int[] toArray() {
+    int[] array = new int[size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = getInt(i);
+    }
+    return array;
+  }
+
+  /** Returns a {@code List<Integer>} view of the values, which boxes them when they are read. */
+  List<Integer> boxed();
+}
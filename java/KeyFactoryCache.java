@@ -0,0 +1,87 @@
+package com.example;
+
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.KeySpec;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class caches {@link KeyFactory} instances per algorithm and optional provider.
+ *
+ * <p>{@link KeyFactory#getInstance(String)} walks the installed providers and reflectively creates
+ * the SPI on every call. A cache resolves the provider once, and as key factories are not
+ * thread-safe, it hands out one factory per thread which is created on the first use of the
+ * thread. Callers on hot paths should keep the cache returned by {@link #of(String)} instead of
+ * looking it up every time.
+ */
+public final class KeyFactoryCache {
+
+  private static final ConcurrentHashMap<String, KeyFactoryCache> caches =
+      new ConcurrentHashMap<>();
+
+  private final String algorithm;
+  private final Provider provider;
+  private final ThreadLocal<KeyFactory> factories;
+
+  private KeyFactoryCache(String algorithm, Provider provider) {
+    this.algorithm = algorithm;
+    this.provider = provider;
+    this.factories = ThreadLocal.withInitial(this::newFactory);
+  }
+
+  /** Returns the cache of the algorithm using the most preferred provider supporting it. */
+  public static KeyFactoryCache of(String algorithm) throws NoSuchAlgorithmException {
+    KeyFactoryCache cache = caches.get(algorithm);
+    if (cache == null) {
+      Provider provider = KeyFactory.getInstance(algorithm).getProvider();
+      cache = caches.computeIfAbsent(algorithm, key -> new KeyFactoryCache(algorithm, provider));
+    }
+    return cache;
+  }
+
+  /** Returns the cache of the algorithm using the named provider. */
+  public static KeyFactoryCache of(String algorithm, String providerName)
+      throws NoSuchAlgorithmException, NoSuchProviderException {
+    String key = algorithm + "@" + providerName;
+    KeyFactoryCache cache = caches.get(key);
+    if (cache == null) {
+      Provider provider = KeyFactory.getInstance(algorithm, providerName).getProvider();
+      cache = caches.computeIfAbsent(key, k -> new KeyFactoryCache(algorithm, provider));
+    }
+    return cache;
+  }
+
+  /** Returns the key factory of the calling thread, which must not be shared with other threads. */
+  public KeyFactory get() {
+    return factories.get();
+  }
+
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  public Provider getProvider() {
+    return provider;
+  }
+
+  public PublicKey generatePublic(KeySpec keySpec) throws InvalidKeySpecException {
+    return factories.get().generatePublic(keySpec);
+  }
+
+  public PrivateKey generatePrivate(KeySpec keySpec) throws InvalidKeySpecException {
+    return factories.get().generatePrivate(keySpec);
+  }
+
+  private KeyFactory newFactory() {
+    try {
+      return KeyFactory.getInstance(algorithm, provider);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(provider + " no longer supports " + algorithm, e);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.example;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is an array-backed {@link java.util.List} whose clones share the array until one of
+ * them is changed, so {@link #clone()} costs the same for any size and the copy is only made by the
+ * first write.
+ *
+ * <p>The array is held with a count of the lists sharing it. A write to a shared array copies it
+ * and leaves the share, and the last list holding the array writes to it in place. A clone which
+ * is dropped without being written still counts as a share, so the next write to the original then
+ * copies once. Lists are not thread-safe, but clones can be handed to other threads.
+ *
+ * @param <E> the type of the elements
+ */
+public final class LazyCloneList<E> extends AbstractList<E> implements RandomAccess, Cloneable {
+
+  private static final int DEFAULT_CAPACITY = 10;
+
+  // The array of elements, and the number of lists sharing it
+  private static final class Storage {
+    final Object[] elements;
+    final AtomicInteger shares = new AtomicInteger(1);
+
+    Storage(Object[] elements) {
+      this.elements = elements;
+    }
+  }
+
+  private Storage storage;
+  private int size;
+
+  public LazyCloneList() {
+    this.storage = new Storage(new Object[DEFAULT_CAPACITY]);
+  }
+
+  private LazyCloneList(Storage storage, int size) {
+    this.storage = storage;
+    this.size = size;
+  }
+
+  /** Returns a list of the elements, which shares the array of the collection if it is a list. */
+  public static <E> LazyCloneList<E> copyOf(Collection<? extends E> elements) {
+    if (elements instanceof LazyCloneList) {
+      @SuppressWarnings("unchecked")
+      LazyCloneList<E> list = (LazyCloneList<E>) elements;
+      return list.clone();
+    }
+    Object[] array = elements.toArray();
+    if (array.getClass() != Object[].class) {
+      array = Arrays.copyOf(array, array.length, Object[].class);
+    }
+    return new LazyCloneList<>(new Storage(array), array.length);
+  }
+
+  /** Returns a list of the same elements sharing the array of this list. */
+  @Override
+  public LazyCloneList<E> clone() {
+    storage.shares.incrementAndGet();
+    return new LazyCloneList<>(storage, size);
+  }
+
+  /** Returns whether the array is shared with other lists, for tests and diagnostics. */
+  public boolean isShared() {
+    return storage.shares.get() > 1;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    checkIndex(index, size);
+    return (E) storage.elements[index];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E set(int index, E element) {
+    checkIndex(index, size);
+    Object[] elements = writableElements(size);
+    E previous = (E) elements[index];
+    elements[index] = element;
+    return previous;
+  }
+
+  @Override
+  public void add(int index, E element) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of size " + size);
+    }
+    Object[] elements = writableElements(size + 1);
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = element;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E remove(int index) {
+    checkIndex(index, size);
+    Object[] elements = writableElements(size);
+    E previous = (E) elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    elements[--size] = null;
+    modCount++;
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    if (storage.shares.get() > 1) {
+      release();
+      storage = new Storage(new Object[DEFAULT_CAPACITY]);
+    } else {
+      Arrays.fill(storage.elements, 0, size, null);
+    }
+    size = 0;
+    modCount++;
+  }
+
+  // Returns an array owned by this list holding at least the given number of elements
+  private Object[] writableElements(int capacity) {
+    Object[] elements = storage.elements;
+    boolean shared = storage.shares.get() > 1;
+    if (!shared && capacity <= elements.length) {
+      return elements;
+    }
+
+    int newCapacity = elements.length;
+    if (capacity > newCapacity) {
+      newCapacity = Math.max(capacity, newCapacity + (newCapacity >> 1) + 1);
+    }
+    Object[] copy = Arrays.copyOf(elements, newCapacity);
+    if (shared) {
+      // Released after copying, as the last list sharing the array then writes to it in place
+      release();
+    }
+    storage = new Storage(copy);
+    return copy;
+  }
+
+  private void release() {
+    storage.shares.decrementAndGet();
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of size " + size);
+    }
+  }
+}
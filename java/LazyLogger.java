@@ -0,0 +1,112 @@
+package com.example;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * This class wraps a {@link Logger} so that messages are only built when they are going to be
+ * logged, either from a {@link Supplier} or from a template with {@code {0}}-style placeholders and
+ * parameters which are rendered by the formatter.
+ *
+ * <p>The level check is {@link Logger#isLoggable(Level)}, which reads the effective level the
+ * logger keeps up to date with its own, its parents' and the {@link java.util.logging.LogManager}
+ * configuration changes, so a filtered call with a template and existing parameters allocates
+ * nothing.
+ */
+public class LazyLogger {
+
+  private static final String CLASS_NAME = LazyLogger.class.getName();
+  private static final StackWalker stackWalker = StackWalker.getInstance();
+
+  private final Logger logger;
+
+  public LazyLogger(Logger logger) {
+    this.logger = logger;
+  }
+
+  public Logger getLogger() {
+    return logger;
+  }
+
+  public void setLevel(Level level) {
+    logger.setLevel(level);
+  }
+
+  public boolean isLoggable(Level level) {
+    return logger.isLoggable(level);
+  }
+
+  public void info(String message) {
+    if (isLoggable(Level.INFO)) {
+      publish(Level.INFO, message, null);
+    }
+  }
+
+  public void info(Supplier<String> messageSupplier) {
+    if (isLoggable(Level.INFO)) {
+      publish(Level.INFO, messageSupplier.get(), null);
+    }
+  }
+
+  public void info(String template, Object parameter) {
+    if (isLoggable(Level.INFO)) {
+      publish(Level.INFO, template, new Object[] {parameter});
+    }
+  }
+
+  public void info(String template, Object parameter1, Object parameter2) {
+    if (isLoggable(Level.INFO)) {
+      publish(Level.INFO, template, new Object[] {parameter1, parameter2});
+    }
+  }
+
+  public void warning(String message) {
+    if (isLoggable(Level.WARNING)) {
+      publish(Level.WARNING, message, null);
+    }
+  }
+
+  public void warning(String template, Object parameter) {
+    if (isLoggable(Level.WARNING)) {
+      publish(Level.WARNING, template, new Object[] {parameter});
+    }
+  }
+
+  public void severe(String message) {
+    if (isLoggable(Level.SEVERE)) {
+      publish(Level.SEVERE, message, null);
+    }
+  }
+
+  public void severe(String template, Object parameter) {
+    if (isLoggable(Level.SEVERE)) {
+      publish(Level.SEVERE, template, new Object[] {parameter});
+    }
+  }
+
+  /**
+   * Logs the template with any number of parameters. Note that the varargs array is allocated by
+   * the caller even when the level is filtered, prefer the fixed arity methods on hot paths.
+   */
+  public void log(Level level, String template, Object... parameters) {
+    if (isLoggable(level)) {
+      publish(level, template, parameters);
+    }
+  }
+
+  private void publish(Level level, String message, Object[] parameters) {
+    LogRecord record = new LogRecord(level, message);
+    record.setParameters(parameters);
+    record.setLoggerName(logger.getName());
+    stackWalker
+        .walk(frames -> frames.dropWhile(f -> CLASS_NAME.equals(f.getClassName())).findFirst())
+        .ifPresent(
+            frame -> {
+              record.setSourceClassName(frame.getClassName());
+              record.setSourceMethodName(frame.getMethodName());
+            });
+    logger.log(record);
+  }
+}
@@ -0,0 +1,161 @@
+package com.example;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * This class is a {@link Formatter} producing the same layout as {@code String.format("%1$tF
+ * %1$tT.%1$tL %2$s %3$s %4$s%n", ...)} without parsing a pattern or allocating intermediate
+ * objects per record.
+ *
+ * <p>Placeholders like {@code {0}} in the message are replaced by the record parameters rendered
+ * with {@link String#valueOf(Object)}, unlike {@link java.text.MessageFormat} no locale specific
+ * number or date formatting is applied.
+ *
+ * <p>Every thread renders into its own reusable buffer. The {@code yyyy-MM-dd HH:mm:ss.} prefix is
+ * cached per thread and is only re-rendered when the second of the record changes, otherwise just
+ * the milliseconds are written.
+ */
+public class LogFormatter extends Formatter {
+
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+  private static final int PREFIX_LENGTH = 20;
+
+  private static final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+  // Per-thread buffer and the cached date prefix of the last rendered second
+  private static final class State {
+    final StringBuilder buffer = new StringBuilder(256);
+    final char[] prefix = new char[PREFIX_LENGTH];
+    long second = Long.MIN_VALUE;
+  }
+
+  @Override
+  public String format(LogRecord logRecord) {
+    return formatToBuffer(logRecord).toString();
+  }
+
+  /**
+   * Renders the record into the reusable buffer of the calling thread. The returned buffer is only
+   * valid until the next call on the same thread.
+   */
+  public StringBuilder formatToBuffer(LogRecord logRecord) {
+    State current = state.get();
+    StringBuilder buffer = current.buffer;
+    buffer.setLength(0);
+    append(
+        current,
+        buffer,
+        logRecord.getMillis(),
+        logRecord.getLevel().getName(),
+        logRecord.getSourceClassName(),
+        logRecord.getMessage(),
+        logRecord.getParameters());
+    return buffer;
+  }
+
+  /** Appends the layout of a record given by its fields, e.g. of a record decoded offline. */
+  public void formatTo(
+      StringBuilder buffer,
+      long millis,
+      String levelName,
+      String sourceClassName,
+      String message,
+      Object[] parameters) {
+    append(state.get(), buffer, millis, levelName, sourceClassName, message, parameters);
+  }
+
+  private static void append(
+      State current,
+      StringBuilder buffer,
+      long millis,
+      String levelName,
+      String sourceClassName,
+      String message,
+      Object[] parameters) {
+    appendTimestamp(current, buffer, millis);
+    buffer.append(' ').append(levelName).append(' ').append(sourceClassName).append(' ');
+    appendMessage(buffer, message, parameters);
+    buffer.append(LINE_SEPARATOR);
+  }
+
+  // Appends the message with its {n} placeholders replaced by the parameters
+  static void appendMessage(StringBuilder buffer, String message, Object[] parameters) {
+    if (message == null || parameters == null || parameters.length == 0) {
+      buffer.append(message);
+      return;
+    }
+
+    int length = message.length();
+    int start = 0;
+    int open = message.indexOf('{');
+    while (open >= 0) {
+      int index = 0;
+      int position = open + 1;
+      while (position < length && isDigit(message.charAt(position)) && index < parameters.length) {
+        index = index * 10 + (message.charAt(position) - '0');
+        position++;
+      }
+      if (position > open + 1
+          && position < length
+          && message.charAt(position) == '}'
+          && index < parameters.length) {
+        buffer.append(message, start, open).append(parameters[index]);
+        start = position + 1;
+      }
+      open = message.indexOf('{', open + 1);
+    }
+    buffer.append(message, start, length);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static void appendTimestamp(State current, StringBuilder buffer, long millis) {
+    long second = Math.floorDiv(millis, 1000);
+    if (second != current.second) {
+      renderPrefix(current.prefix, second);
+      current.second = second;
+    }
+    buffer.append(current.prefix);
+
+    int milli = Math.floorMod(millis, 1000);
+    buffer
+        .append((char) ('0' + milli / 100))
+        .append((char) ('0' + milli / 10 % 10))
+        .append((char) ('0' + milli % 10));
+  }
+
+  private static void renderPrefix(char[] prefix, long second) {
+    ZoneId zone = ZoneId.systemDefault();
+    ZoneOffset offset = zone.getRules().getOffset(Instant.ofEpochSecond(second));
+    LocalDateTime dateTime = LocalDateTime.ofEpochSecond(second, 0, offset);
+
+    int year = dateTime.getYear();
+    prefix[0] = (char) ('0' + year / 1000 % 10);
+    prefix[1] = (char) ('0' + year / 100 % 10);
+    prefix[2] = (char) ('0' + year / 10 % 10);
+    prefix[3] = (char) ('0' + year % 10);
+    prefix[4] = '-';
+    putTwoDigits(prefix, 5, dateTime.getMonthValue());
+    prefix[7] = '-';
+    putTwoDigits(prefix, 8, dateTime.getDayOfMonth());
+    prefix[10] = ' ';
+    putTwoDigits(prefix, 11, dateTime.getHour());
+    prefix[13] = ':';
+    putTwoDigits(prefix, 14, dateTime.getMinute());
+    prefix[16] = ':';
+    putTwoDigits(prefix, 17, dateTime.getSecond());
+    prefix[19] = '.';
+  }
+
+  private static void putTwoDigits(char[] chars, int index, int value) {
+    chars[index] = (char) ('0' + value / 10);
+    chars[index + 1] = (char) ('0' + value % 10);
+  }
+}
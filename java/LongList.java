@@ -0,0 +1,65 @@
+package com.example;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This interface is an ordered list of {@code long} values which are read and written without
+ * boxing, as a primitive counterpart of {@link List List&lt;Long&gt;}.
+ *
+ * <p>{@link PrimitiveLists#asLongList(long...)} adapts an array. {@link #boxed()} returns a
+ * {@code List<Long>} view for code which needs one, and only that view boxes the values.
+ */
+public interface LongList {
+
+  int size();
+
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+
+  long getLong(int index);
+
+  /** Replaces the value at the index, and returns the previous value. */
+  long setLong(int index, long value);
+
+  default PrimitiveIterator.OfLong iterator() {
+    return new PrimitiveIterator.OfLong() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size();
+      }
+
+      @Override
+      public long nextLong() {
+        if (index >= size()) {
+          throw new NoSuchElementException();
+        }
+        return getLong(index++);
+      }
+    };
+  }
+
+  Spliterator.OfLong spliterator();
+
+  default LongStream stream() {
+    return StreamSupport.longStream(spliterator(), false);
+  }
+
+  default long[] toArray() {
+    long[] array = new long[size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = getLong(i);
+    }
+    return array;
+  }
+
+  /** Returns a {@code List<Long>} view of the values, which boxes them when they are read. */
+  List<Long> boxed();
+}
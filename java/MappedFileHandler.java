@@ -0,0 +1,260 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * This class is a file {@link Handler} which encodes the formatted records straight into a memory
+ * mapped segment file, instead of pushing every record through the stream stack and a write
+ * syscall like {@link java.util.logging.FileHandler} does. When it is created with a {@link
+ * BinaryLogFormat.Encoder}, the records are written in the binary format instead of being
+ * formatted, and every segment starts a new binary stream which can be decoded on its own.
+ *
+ * <p>Segments are named {@code <baseName>.<index>.log} ({@code .bin} for binary segments), mapped
+ * with their full size up front and rolled over to the next index once a record does not fit
+ * anymore. A closed segment is truncated to the bytes actually written. The mapped pages are only
+ * forced to disk once {@code batchSize} records were written or {@code forceInterval} has elapsed
+ * since the last force, so consecutive records share a single commit. A daemon thread forces the
+ * records which have been waiting for {@code forceInterval} while the logger is idle, and the
+ * records written after the last force are also committed by {@link #flush()} and {@link
+ * #close()}.
+ */
+public class MappedFileHandler extends Handler {
+
+  private final Path directory;
+  private final String baseName;
+  private final int segmentSize;
+  private final int batchSize;
+  private final long forceIntervalNanos;
+  private final BinaryLogFormat.Encoder recordEncoder;
+  private final ScheduledExecutorService forcer;
+  private final CharsetEncoder charsetEncoder =
+      StandardCharsets.UTF_8
+          .newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  private int segmentIndex;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private int forcedPosition;
+  private int unforcedRecords;
+  private long lastForce;
+
+  /**
+   * Creates the handler and maps its first segment, existing segments with the same name are
+   * overwritten.
+   *
+   * @param directory the directory of the segment files
+   * @param baseName the prefix of the segment file names
+   * @param segmentSize the size of each segment in bytes
+   * @param batchSize the number of records after which the segment is forced to disk
+   * @param forceInterval the time after which the segment is forced to disk
+   */
+  public MappedFileHandler(
+      Path directory, String baseName, int segmentSize, int batchSize, Duration forceInterval)
+      throws IOException {
+    this(directory, baseName, segmentSize, batchSize, forceInterval, null);
+  }
+
+  /**
+   * Creates the handler writing the records in the binary format of the given encoder, or
+   * formatted text if the encoder is null.
+   */
+  public MappedFileHandler(
+      Path directory,
+      String baseName,
+      int segmentSize,
+      int batchSize,
+      Duration forceInterval,
+      BinaryLogFormat.Encoder recordEncoder)
+      throws IOException {
+    if (segmentSize <= 0 || batchSize <= 0) {
+      throw new IllegalArgumentException("Segment size and batch size must be positive");
+    }
+    this.directory = directory;
+    this.baseName = baseName;
+    this.segmentSize = segmentSize;
+    this.batchSize = batchSize;
+    this.forceIntervalNanos = forceInterval.toNanos();
+    this.recordEncoder = recordEncoder;
+    setFormatter(new LogFormatter());
+    openSegment(0);
+    if (forceIntervalNanos > 0) {
+      this.forcer =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "MappedFileHandler-forcer");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long period = Math.max(forceIntervalNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+      forcer.scheduleAtFixedRate(this::forceDue, period, period, TimeUnit.NANOSECONDS);
+    } else {
+      // Every record is forced on publish
+      this.forcer = null;
+    }
+  }
+
+  @Override
+  public synchronized void publish(LogRecord record) {
+    if (segment == null || !isLoggable(record)) {
+      return;
+    }
+
+    CharSequence text = null;
+    if (recordEncoder == null) {
+      try {
+        text = format(record);
+      } catch (RuntimeException e) {
+        reportError(null, e, ErrorManager.FORMAT_FAILURE);
+        return;
+      }
+    }
+
+    try {
+      if (!encode(record, text)) {
+        roll();
+        if (!encode(record, text)) {
+          reportError("Record is larger than a segment", null, ErrorManager.WRITE_FAILURE);
+          return;
+        }
+      }
+      unforcedRecords++;
+      if (unforcedRecords >= batchSize || System.nanoTime() - lastForce >= forceIntervalNanos) {
+        force();
+      }
+    } catch (IOException e) {
+      reportError(null, e, ErrorManager.WRITE_FAILURE);
+    }
+  }
+
+  private CharSequence format(LogRecord record) {
+    Formatter formatter = getFormatter();
+    if (formatter instanceof LogFormatter) {
+      return ((LogFormatter) formatter).formatToBuffer(record);
+    }
+    return formatter.format(record);
+  }
+
+  // Encodes the record at the current position, or leaves the segment untouched if it does not fit
+  private boolean encode(LogRecord record, CharSequence text) {
+    if (recordEncoder != null) {
+      try {
+        recordEncoder.encode(record, segment);
+        return true;
+      } catch (BufferOverflowException e) {
+        return false;
+      }
+    }
+
+    int start = segment.position();
+    charsetEncoder.reset();
+    CoderResult result = charsetEncoder.encode(CharBuffer.wrap(text), segment, true);
+    if (!result.isOverflow()) {
+      result = charsetEncoder.flush(segment);
+    }
+    if (result.isOverflow()) {
+      segment.position(start);
+      return false;
+    }
+    return true;
+  }
+
+  private void roll() throws IOException {
+    closeSegment();
+    openSegment(segmentIndex + 1);
+  }
+
+  private void openSegment(int index) throws IOException {
+    String extension = recordEncoder == null ? ".log" : ".bin";
+    Path path = directory.resolve(baseName + "." + index + extension);
+    channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    segmentIndex = index;
+    if (recordEncoder != null) {
+      recordEncoder.reset();
+    }
+    forcedPosition = 0;
+    unforcedRecords = 0;
+    lastForce = System.nanoTime();
+  }
+
+  private void closeSegment() throws IOException {
+    force();
+    int length = segment.position();
+    segment = null;
+    try {
+      channel.truncate(length);
+    } finally {
+      channel.close();
+    }
+  }
+
+  // Forces only the range written since the previous force
+  private void force() {
+    int position = segment.position();
+    segment.force(forcedPosition, position - forcedPosition);
+    forcedPosition = position;
+    unforcedRecords = 0;
+    lastForce = System.nanoTime();
+  }
+
+  // Forces the records which have waited for the force interval since the last force
+  private synchronized void forceDue() {
+    if (segment != null
+        && unforcedRecords > 0
+        && System.nanoTime() - lastForce >= forceIntervalNanos) {
+      try {
+        force();
+      } catch (RuntimeException e) {
+        reportError(null, e, ErrorManager.FLUSH_FAILURE);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (segment != null && unforcedRecords > 0) {
+      force();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws SecurityException {
+    if (segment == null) {
+      return;
+    }
+    if (forcer != null) {
+      forcer.shutdown();
+    }
+    try {
+      closeSegment();
+    } catch (IOException e) {
+      reportError(null, e, ErrorManager.CLOSE_FAILURE);
+    }
+  }
+}
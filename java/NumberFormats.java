@@ -0,0 +1,95 @@
+package com.example;
+
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is a factory of {@link NumberFormat}s which builds every (locale, style) format only
+ * once, and serves per-thread clones of it.
+ *
+ * <p>Building a number format loads the locale data and the {@link java.text.DecimalFormatSymbols}
+ * of the locale, and the formats are not thread-safe, so sharing one instance needs locking. The
+ * prototypes built here are never handed out, every thread gets its own clone on first use. The
+ * returned formats belong to the calling thread, they must not be passed to other threads, and
+ * changing their settings changes them for every later use on the same thread.
+ */
+public final class NumberFormats {
+
+  /** The styles matching the factory methods of {@link NumberFormat}. */
+  public enum Style {
+    NUMBER,
+    INTEGER,
+    CURRENCY,
+    PERCENT
+  }
+
+  private static final int STYLES = Style.values().length;
+
+  private static final ConcurrentHashMap<Locale, NumberFormat[]> prototypes =
+      new ConcurrentHashMap<>();
+  private static final ThreadLocal<Map<Locale, NumberFormat[]>> formats =
+      ThreadLocal.withInitial(HashMap::new);
+
+  private NumberFormats() {}
+
+  /** Returns the format of the calling thread for the locale and style. */
+  public static NumberFormat get(Locale locale, Style style) {
+    Map<Locale, NumberFormat[]> threadFormats = formats.get();
+    NumberFormat[] localeFormats = threadFormats.get(locale);
+    if (localeFormats == null) {
+      localeFormats = new NumberFormat[STYLES];
+      threadFormats.put(locale, localeFormats);
+    }
+
+    NumberFormat format = localeFormats[style.ordinal()];
+    if (format == null) {
+      format = (NumberFormat) prototypes(locale)[style.ordinal()].clone();
+      localeFormats[style.ordinal()] = format;
+    }
+    return format;
+  }
+
+  public static NumberFormat currency() {
+    return currency(Locale.getDefault(Locale.Category.FORMAT));
+  }
+
+  public static NumberFormat currency(Locale locale) {
+    return get(locale, Style.CURRENCY);
+  }
+
+  public static NumberFormat percent() {
+    return percent(Locale.getDefault(Locale.Category.FORMAT));
+  }
+
+  public static NumberFormat percent(Locale locale) {
+    return get(locale, Style.PERCENT);
+  }
+
+  public static NumberFormat number(Locale locale) {
+    return get(locale, Style.NUMBER);
+  }
+
+  public static NumberFormat integer(Locale locale) {
+    return get(locale, Style.INTEGER);
+  }
+
+  private static NumberFormat[] prototypes(Locale locale) {
+    NumberFormat[] localePrototypes = prototypes.get(locale);
+    if (localePrototypes == null) {
+      localePrototypes = prototypes.computeIfAbsent(locale, NumberFormats::newPrototypes);
+    }
+    return localePrototypes;
+  }
+
+  private static NumberFormat[] newPrototypes(Locale locale) {
+    NumberFormat[] localePrototypes = new NumberFormat[STYLES];
+    localePrototypes[Style.NUMBER.ordinal()] = NumberFormat.getNumberInstance(locale);
+    localePrototypes[Style.INTEGER.ordinal()] = NumberFormat.getIntegerInstance(locale);
+    localePrototypes[Style.CURRENCY.ordinal()] = NumberFormat.getCurrencyInstance(locale);
+    localePrototypes[Style.PERCENT.ordinal()] = NumberFormat.getPercentInstance(locale);
+    return localePrototypes;
+  }
+}
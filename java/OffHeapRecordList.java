@@ -0,0 +1,271 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class adapts fixed-width records stored outside of the Java heap to a {@link java.util.List}
+ * of flyweight {@link Record} accessors, without copying the records onto the heap.
+ *
+ * <p>The records are kept in direct or file mapped {@link ByteBuffer} slabs of at most 1 GB in the
+ * native byte order, so the list can hold tens of GB of records which are never scanned by the
+ * garbage collector. {@link #get(int)} returns a new flyweight positioned on the record, and {@link
+ * #get(int, Record)} moves an existing one. The methods of the {@link java.util.List} contract,
+ * like the iterator, {@link #stream()} or {@link #toArray()}, return a new flyweight per record,
+ * so the records they return can be kept. Scans which only read or write the records in place use
+ * {@link #forEachRecord(Consumer)} or {@link #recordStream()} instead, which move a single
+ * flyweight over the records, so a record passed to an action is only valid during the call.
+ * Spliterators split evenly, so parallel streams process the slabs on all cores. Records are
+ * changed through their flyweights, the list itself has a fixed size.
+ *
+ * @param <R> the type of the flyweights
+ */
+public final class OffHeapRecordList<R extends OffHeapRecordList.Record> extends AbstractList<R>
+    implements RandomAccess {
+
+  private static final int MAX_SLAB_BYTES = 1 << 30;
+
+  private final ByteBuffer[] slabs;
+  private final int size;
+  private final int recordSize;
+  private final int slabShift;
+  private final int slabMask;
+  private final Supplier<R> flyweights;
+
+  private OffHeapRecordList(
+      int size, int recordSize, Supplier<R> flyweights, SlabFactory slabFactory)
+      throws IOException {
+    if (size < 0 || recordSize <= 0 || recordSize > MAX_SLAB_BYTES) {
+      throw new IllegalArgumentException(
+          "Invalid size or record size : " + size + ", " + recordSize);
+    }
+    // The number of records of a slab is a power of 2, so a record is found by shifting its index
+    int shift = 31 - Integer.numberOfLeadingZeros(MAX_SLAB_BYTES / recordSize);
+    this.slabs = new ByteBuffer[(int) (((long) size + (1L << shift) - 1) >>> shift)];
+    for (int i = 0; i < slabs.length; i++) {
+      long first = (long) i << shift;
+      int records = (int) Math.min(1L << shift, size - first);
+      slabs[i] = slabFactory.create(first * recordSize, records * recordSize);
+      slabs[i].order(ByteOrder.nativeOrder());
+    }
+    this.size = size;
+    this.recordSize = recordSize;
+    this.slabShift = shift;
+    this.slabMask = (1 << shift) - 1;
+    this.flyweights = flyweights;
+  }
+
+  // Creates the slab of the given byte range of the list
+  @FunctionalInterface
+  private interface SlabFactory {
+    ByteBuffer create(long position, int length) throws IOException;
+  }
+
+  /** Returns a list of zeroed records in direct buffers, which are freed when it is collected. */
+  public static <R extends Record> OffHeapRecordList<R> allocate(
+      int size, int recordSize, Supplier<R> flyweights) {
+    try {
+      return new OffHeapRecordList<>(
+          size, recordSize, flyweights, (position, length) -> ByteBuffer.allocateDirect(length));
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Returns a list of the records of a file mapped in the given mode, starting at the beginning of
+   * the file. The mapping stays valid after the channel is closed.
+   */
+  public static <R extends Record> OffHeapRecordList<R> map(
+      FileChannel channel,
+      FileChannel.MapMode mode,
+      int size,
+      int recordSize,
+      Supplier<R> flyweights)
+      throws IOException {
+    return new OffHeapRecordList<>(
+        size, recordSize, flyweights, (position, length) -> channel.map(mode, position, length));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public int recordSize() {
+    return recordSize;
+  }
+
+  @Override
+  public R get(int index) {
+    return get(index, flyweights.get());
+  }
+
+  /** Moves the flyweight to the record at the index, and returns it. */
+  public R get(int index, R flyweight) {
+    Objects.checkIndex(index, size);
+    flyweight.moveTo(slabs[index >>> slabShift], (index & slabMask) * recordSize);
+    return flyweight;
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    return Spliterators.iterator(spliterator());
+  }
+
+  @Override
+  public Spliterator<R> spliterator() {
+    return new RecordSpliterator(0, size, false);
+  }
+
+  /**
+   * Performs the action for each record with a single flyweight, which is only positioned on the
+   * record during the call.
+   */
+  public void forEachRecord(Consumer<? super R> action) {
+    R flyweight = flyweights.get();
+    for (int i = 0; i < size; i++) {
+      action.accept(get(i, flyweight));
+    }
+  }
+
+  /**
+   * Returns a stream of the records with a single flyweight per split, which is only positioned on
+   * a record while it is processed, so the records must not be collected.
+   */
+  public Stream<R> recordStream() {
+    return StreamSupport.stream(new RecordSpliterator(0, size, true), false);
+  }
+
+  // Returns the records from index to end, moving one flyweight over them if it is shared
+  private final class RecordSpliterator implements Spliterator<R> {
+    private final R flyweight;
+    private int index;
+    private final int end;
+
+    RecordSpliterator(int index, int end, boolean shared) {
+      this.flyweight = shared ? flyweights.get() : null;
+      this.index = index;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+      if (index >= end) {
+        return false;
+      }
+      action.accept(next(index++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super R> action) {
+      for (; index < end; index++) {
+        action.accept(next(index));
+      }
+    }
+
+    private R next(int index) {
+      return flyweight != null ? get(index, flyweight) : get(index);
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+      int middle = (index + end) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+      Spliterator<R> prefix = new RecordSpliterator(index, middle, flyweight != null);
+      index = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+  }
+
+  /**
+   * A flyweight accessor of one record at a time, whose fields are read and written at byte
+   * offsets within the record. Subclasses add accessors named after the fields. The offsets are
+   * not checked against the record size. Two flyweights are equal when they are positioned on the
+   * same record, so their equality changes when they are moved.
+   */
+  public static class Record {
+
+    private ByteBuffer slab;
+    private int offset;
+
+    // Positions the flyweight on the record starting at the offset of the slab
+    final void moveTo(ByteBuffer slab, int offset) {
+      this.slab = slab;
+      this.offset = offset;
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof Record)) {
+        return false;
+      }
+      Record other = (Record) obj;
+      return slab == other.slab && offset == other.offset;
+    }
+
+    @Override
+    public final int hashCode() {
+      return 31 * System.identityHashCode(slab) + offset;
+    }
+
+    public final byte getByte(int field) {
+      return slab.get(offset + field);
+    }
+
+    public final void putByte(int field, byte value) {
+      slab.put(offset + field, value);
+    }
+
+    public final int getInt(int field) {
+      return slab.getInt(offset + field);
+    }
+
+    public final void putInt(int field, int value) {
+      slab.putInt(offset + field, value);
+    }
+
+    public final long getLong(int field) {
+      return slab.getLong(offset + field);
+    }
+
+    public final void putLong(int field, long value) {
+      slab.putLong(offset + field, value);
+    }
+
+    public final double getDouble(int field) {
+      return slab.getDouble(offset + field);
+    }
+
+    public final void putDouble(int field, double value) {
+      slab.putDouble(offset + field, value);
+    }
+  }
+}
@@ -0,0 +1,391 @@
+package com.example;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * This class is a persistent vector, an immutable {@link java.util.List} whose modified copies
+ * share all unchanged elements with the original, so a clone costs nothing and a change costs only
+ * the path to the changed element.
+ *
+ * <p>The elements are kept in a trie of 32-way nodes, with the last up to 32 elements in a separate
+ * tail array, so {@link #get(int)}, {@link #with(int, Object)}, {@link #plus(Object)} and {@link
+ * #pop()} take at most log32(n) steps, which are 5 steps for 10^7 elements. A {@link Transient}
+ * changes the nodes it created itself in place, for building a vector or applying many changes at
+ * once. The mutators of {@code List} throw {@link UnsupportedOperationException}.
+ *
+ * @param <E> the type of the elements
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+  private static final PersistentVector<?> EMPTY =
+      new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+  // A node of the trie, which can only be changed by the transient owning it
+  private static final class Node {
+    final Object owner;
+    final Object[] array;
+
+    Node(Object owner, Object[] array) {
+      this.owner = owner;
+      this.array = array;
+    }
+  }
+
+  private final int size;
+  private final int shift;
+  private final Node root;
+  private final Object[] tail;
+
+  private PersistentVector(int size, int shift, Node root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <E> PersistentVector<E> empty() {
+    return (PersistentVector<E>) EMPTY;
+  }
+
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <E> PersistentVector<E> of(E... elements) {
+    return copyOf(Arrays.asList(elements));
+  }
+
+  /** Returns a vector of the elements, which is the collection itself if it is a vector. */
+  @SuppressWarnings("unchecked")
+  public static <E> PersistentVector<E> copyOf(Collection<? extends E> elements) {
+    if (elements instanceof PersistentVector) {
+      return (PersistentVector<E>) elements;
+    }
+    Transient<E> vector = PersistentVector.<E>empty().asTransient();
+    for (E element : elements) {
+      vector.add(element);
+    }
+    return vector.persistent();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    return (E) leafFor(index)[index & MASK];
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private int index;
+      private Object[] leaf;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public E next() {
+        if (index >= size) {
+          throw new NoSuchElementException();
+        }
+        if ((index & MASK) == 0 || leaf == null) {
+          leaf = leafFor(index);
+        }
+        return (E) leaf[index++ & MASK];
+      }
+    };
+  }
+
+  /** Returns a vector with the element appended. */
+  public PersistentVector<E> plus(E element) {
+    if (size - tailOffset(size) < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = element;
+      return new PersistentVector<>(size + 1, shift, root, newTail);
+    }
+
+    Node tailNode = new Node(null, tail);
+    int newShift = shift;
+    Node newRoot;
+    if ((size >>> BITS) > (1 << shift)) {
+      newRoot = new Node(null, new Object[WIDTH]);
+      newRoot.array[0] = root;
+      newRoot.array[1] = newPath(null, shift, tailNode);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(null, size, shift, root, tailNode);
+    }
+    return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+  }
+
+  /** Returns a vector with the element at the index replaced, or appended at index {@code size}. */
+  public PersistentVector<E> with(int index, E element) {
+    if (index == size) {
+      return plus(element);
+    }
+    checkIndex(index, size);
+    if (index >= tailOffset(size)) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = element;
+      return new PersistentVector<>(size, shift, root, newTail);
+    }
+    return new PersistentVector<>(size, shift, assoc(null, shift, root, index, element), tail);
+  }
+
+  /** Returns a vector without the last element. */
+  public PersistentVector<E> pop() {
+    if (size == 0) {
+      throw new IllegalStateException("Cannot pop an empty vector");
+    } else if (size == 1) {
+      return empty();
+    } else if (size - tailOffset(size) > 1) {
+      return new PersistentVector<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+    }
+
+    Object[] newTail = leafFor(size - 2);
+    Node newRoot = popTail(null, size, shift, root);
+    int newShift = shift;
+    if (newRoot == null) {
+      newRoot = EMPTY_NODE;
+    }
+    if (shift > BITS && newRoot.array[1] == null) {
+      newRoot = (Node) newRoot.array[0];
+      newShift -= BITS;
+    }
+    return new PersistentVector<>(size - 1, newShift, newRoot, newTail);
+  }
+
+  /** Returns a transient vector starting with the elements of this vector. */
+  public Transient<E> asTransient() {
+    return new Transient<>(this);
+  }
+
+  private Object[] leafFor(int index) {
+    checkIndex(index, size);
+    if (index >= tailOffset(size)) {
+      return tail;
+    }
+    Node node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Node) node.array[(index >>> level) & MASK];
+    }
+    return node.array;
+  }
+
+  /**
+   * A vector which changes the nodes it created itself in place, and copies the nodes it shares
+   * with persistent vectors before changing them. A transient must only be used by one thread, and
+   * not after {@link #persistent()}.
+   */
+  public static final class Transient<E> {
+
+    private Object owner = new Object();
+    private int size;
+    private int shift;
+    private Node root;
+    private Object[] tail;
+
+    private Transient(PersistentVector<E> vector) {
+      this.size = vector.size;
+      this.shift = vector.shift;
+      this.root = new Node(owner, vector.root.array.clone());
+      this.tail = Arrays.copyOf(vector.tail, WIDTH);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+      ensureOwner();
+      checkIndex(index, size);
+      if (index >= tailOffset(size)) {
+        return (E) tail[index & MASK];
+      }
+      Node node = root;
+      for (int level = shift; level > 0; level -= BITS) {
+        node = (Node) node.array[(index >>> level) & MASK];
+      }
+      return (E) node.array[index & MASK];
+    }
+
+    public Transient<E> add(E element) {
+      ensureOwner();
+      if (size - tailOffset(size) < WIDTH) {
+        tail[size++ & MASK] = element;
+        return this;
+      }
+
+      Node tailNode = new Node(owner, tail);
+      tail = new Object[WIDTH];
+      tail[0] = element;
+      if ((size >>> BITS) > (1 << shift)) {
+        Node newRoot = new Node(owner, new Object[WIDTH]);
+        newRoot.array[0] = root;
+        newRoot.array[1] = newPath(owner, shift, tailNode);
+        root = newRoot;
+        shift += BITS;
+      } else {
+        root = pushTail(owner, size, shift, root, tailNode);
+      }
+      size++;
+      return this;
+    }
+
+    /** Replaces the element at the index, or appends it at index {@code size}. */
+    public Transient<E> set(int index, E element) {
+      ensureOwner();
+      if (index == size) {
+        return add(element);
+      }
+      checkIndex(index, size);
+      if (index >= tailOffset(size)) {
+        tail[index & MASK] = element;
+      } else {
+        root = assoc(owner, shift, root, index, element);
+      }
+      return this;
+    }
+
+    public Transient<E> pop() {
+      ensureOwner();
+      if (size == 0) {
+        throw new IllegalStateException("Cannot pop an empty vector");
+      } else if (size == 1 || size - tailOffset(size) > 1) {
+        tail[--size & MASK] = null;
+        return this;
+      }
+
+      // The new tail is the last leaf of the trie, which may be shared and is therefore copied
+      Object[] newTail = leafOf(size - 2).clone();
+      Node newRoot = popTail(owner, size, shift, root);
+      if (newRoot == null) {
+        newRoot = new Node(owner, new Object[WIDTH]);
+      }
+      if (shift > BITS && newRoot.array[1] == null) {
+        newRoot = ensureOwned(owner, (Node) newRoot.array[0]);
+        shift -= BITS;
+      }
+      root = newRoot;
+      tail = newTail;
+      size--;
+      return this;
+    }
+
+    /** Returns a persistent vector of the elements, after which the transient cannot be used. */
+    public PersistentVector<E> persistent() {
+      ensureOwner();
+      owner = null;
+      int tailLength = size - tailOffset(size);
+      return new PersistentVector<>(size, shift, root, Arrays.copyOf(tail, tailLength));
+    }
+
+    private Object[] leafOf(int index) {
+      Node node = root;
+      for (int level = shift; level > 0; level -= BITS) {
+        node = (Node) node.array[(index >>> level) & MASK];
+      }
+      return node.array;
+    }
+
+    private void ensureOwner() {
+      if (owner == null) {
+        throw new IllegalStateException("Transient used after persistent()");
+      }
+    }
+  }
+
+  private static int tailOffset(int size) {
+    return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of size " + size);
+    }
+  }
+
+  // Returns the node if it is owned by the transient, or a copy owned by it
+  private static Node ensureOwned(Object owner, Node node) {
+    if (owner != null && node.owner == owner) {
+      return node;
+    }
+    return new Node(owner, node.array.clone());
+  }
+
+  private static Node newPath(Object owner, int level, Node node) {
+    if (level == 0) {
+      return node;
+    }
+    Node path = new Node(owner, new Object[WIDTH]);
+    path.array[0] = newPath(owner, level - BITS, node);
+    return path;
+  }
+
+  // Adds the full tail of a vector of the given size as the last leaf of the trie
+  private static Node pushTail(Object owner, int size, int level, Node parent, Node tailNode) {
+    int index = ((size - 1) >>> level) & MASK;
+    Node result = ensureOwned(owner, parent);
+    Node child;
+    if (level == BITS) {
+      child = tailNode;
+    } else {
+      Node existing = (Node) parent.array[index];
+      child =
+          existing != null
+              ? pushTail(owner, size, level - BITS, existing, tailNode)
+              : newPath(owner, level - BITS, tailNode);
+    }
+    result.array[index] = child;
+    return result;
+  }
+
+  private static Node assoc(Object owner, int level, Node node, int index, Object element) {
+    Node result = ensureOwned(owner, node);
+    if (level == 0) {
+      result.array[index & MASK] = element;
+    } else {
+      int childIndex = (index >>> level) & MASK;
+      result.array[childIndex] =
+          assoc(owner, level - BITS, (Node) node.array[childIndex], index, element);
+    }
+    return result;
+  }
+
+  // Removes the last leaf of the trie of a vector of the given size, or returns null if empty
+  private static Node popTail(Object owner, int size, int level, Node node) {
+    int index = ((size - 2) >>> level) & MASK;
+    if (level > BITS) {
+      Node child = popTail(owner, size, level - BITS, (Node) node.array[index]);
+      if (child == null && index == 0) {
+        return null;
+      }
+      Node result = ensureOwned(owner, node);
+      result.array[index] = child;
+      return result;
+    } else if (index == 0) {
+      return null;
+    }
+    Node result = ensureOwned(owner, node);
+    result.array[index] = null;
+    return result;
+  }
+}
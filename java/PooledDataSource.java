@@ -0,0 +1,772 @@
+package com.example;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * This class is a {@link DataSource} which pools the connections of any JDBC driver, so that
+ * borrowing a connection neither looks up the driver nor connects to the database again. New
+ * connections are opened with the driver of the {@link DriverResolver#getDefault() default
+ * resolver}.
+ *
+ * <p>At most {@code maxSize} connections are open at once, which is enforced by a {@link
+ * Semaphore}. Returned connections are pushed on a lock-free {@link ConcurrentLinkedDeque} and the
+ * most recently returned one is borrowed first, as it is the most likely to still be valid. An idle
+ * connection which has not been used for longer than the validation interval is checked with
+ * {@link Connection#isValid(int)} on borrow, within the time budget of the borrow, or replaced by a
+ * new connection when less than the one second granularity of the check is left. Connections
+ * which failed with a connection error are not pooled again. The borrowed {@link Proxy} returns the
+ * connection to the pool when it is closed, after rolling back an open transaction and restoring
+ * the session properties the borrower changed, like the read-only flag, the transaction isolation
+ * or the schema, to their values before the first change. Connections
+ * borrowed for longer than the leak threshold are logged with the stack trace of the borrow.
+ *
+ * <p>Each pooled connection keeps an LRU cache of the statements prepared with {@link
+ * Connection#prepareStatement(String)}, keyed by the SQL text, so a statement is only prepared by
+ * the database once per connection. Closing a cached statement clears it and gives it back to the
+ * cache, with the limits and timeouts the borrower changed restored. A statement which is already
+ * in use is prepared again without the cache. Every statement
+ * created by a borrowed connection is a proxy whose {@link Statement#getConnection()} is the
+ * borrowed connection, and the statements still open when the connection is returned are given
+ * back to the cache or closed.
+ */
+public final class PooledDataSource implements DataSource, AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(PooledDataSource.class.getName());
+
+  // The connection errors of SQL states starting with 08 leave the connection unusable
+  private static final String CONNECTION_ERROR_CLASS = "08";
+
+  private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+  // The setters of the properties which are restored for the next borrower
+  private static final Set<String> CONNECTION_SETTERS =
+      Set.of(
+          "setReadOnly",
+          "setTransactionIsolation",
+          "setCatalog",
+          "setSchema",
+          "setNetworkTimeout",
+          "setTypeMap",
+          "setHoldability");
+  private static final Set<String> STATEMENT_SETTERS =
+      Set.of(
+          "setMaxRows",
+          "setLargeMaxRows",
+          "setFetchSize",
+          "setFetchDirection",
+          "setQueryTimeout",
+          "setMaxFieldSize");
+
+  private static final Constructor<?> CONNECTION_PROXY = proxyConstructor(Connection.class);
+  private static final Constructor<?> STATEMENT_PROXY = proxyConstructor(Statement.class);
+  private static final Constructor<?> PREPARED_STATEMENT_PROXY =
+      proxyConstructor(PreparedStatement.class);
+  private static final Constructor<?> CALLABLE_STATEMENT_PROXY =
+      proxyConstructor(CallableStatement.class);
+
+  private final String url;
+  private final Properties info;
+  private final int maxSize;
+  private final long borrowTimeoutNanos;
+  private final long validationIntervalNanos;
+  private final long leakThresholdNanos;
+  private final int statementCacheSize;
+
+  private final Semaphore permits;
+  private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+  private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService leakDetector;
+  private volatile boolean closed;
+  private volatile PrintWriter logWriter;
+
+  /**
+   * Creates a pool of at most {@code maxSize} connections, which waits up to 30 seconds for a
+   * connection, validates connections idle for more than 1 second, caches 64 statements per
+   * connection and reports no leaks.
+   */
+  public PooledDataSource(String url, Properties info, int maxSize) {
+    this(
+        url,
+        info,
+        maxSize,
+        Duration.ofSeconds(30),
+        Duration.ofSeconds(1),
+        Duration.ZERO,
+        DEFAULT_STATEMENT_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a pool of at most {@code maxSize} connections.
+   *
+   * @param borrowTimeout the time budget of a borrow, including the validation of connections
+   * @param validationInterval the idle time after which a connection is validated on borrow
+   * @param leakThreshold the time after which a borrowed connection is reported, or zero
+   * @param statementCacheSize the number of prepared statements cached per connection, or zero
+   */
+  public PooledDataSource(
+      String url,
+      Properties info,
+      int maxSize,
+      Duration borrowTimeout,
+      Duration validationInterval,
+      Duration leakThreshold,
+      int statementCacheSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Invalid max size : " + maxSize);
+    } else if (statementCacheSize < 0) {
+      throw new IllegalArgumentException("Invalid statement cache size : " + statementCacheSize);
+    }
+    this.url = url;
+    this.info = (Properties) info.clone();
+    this.maxSize = maxSize;
+    this.borrowTimeoutNanos = borrowTimeout.toNanos();
+    this.validationIntervalNanos = validationInterval.toNanos();
+    this.leakThresholdNanos = leakThreshold.toNanos();
+    this.statementCacheSize = statementCacheSize;
+    this.permits = new Semaphore(maxSize);
+
+    if (leakThresholdNanos > 0) {
+      leakDetector =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "PooledDataSource-leak-detector");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long period = Math.max(leakThresholdNanos / 2, TimeUnit.MILLISECONDS.toNanos(10));
+      leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.NANOSECONDS);
+    } else {
+      leakDetector = null;
+    }
+  }
+
+  // A physical connection, its statement cache and the state of its current borrow
+  private static final class PooledConnection {
+    final Connection connection;
+    final StatementCache statements;
+    volatile long lastUsedNanos;
+    volatile long borrowedNanos;
+    volatile Throwable borrowStack;
+    volatile boolean leakReported;
+    // The values of the changed properties before their first change, by setter
+    Map<String, Object> initialState;
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+      this.connection = connection;
+      this.statements = new StatementCache(statementCacheSize);
+      this.lastUsedNanos = System.nanoTime();
+    }
+  }
+
+  // A prepared statement of the cache, which is in use while a borrower has not closed it
+  private static final class CachedStatement {
+    final PreparedStatement statement;
+    boolean inUse;
+    boolean evicted;
+    // The values of the changed properties before their first change, by setter
+    Map<String, Object> initialState;
+
+    CachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+    }
+  }
+
+  // The statements of a connection by SQL text, in the order they were last used
+  private static final class StatementCache extends LinkedHashMap<String, CachedStatement> {
+    private static final long serialVersionUID = 1L;
+    private final int maxSize;
+
+    StatementCache(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+      if (size() <= maxSize) {
+        return false;
+      }
+      CachedStatement cached = eldest.getValue();
+      if (cached.inUse) {
+        // Closed when the borrower closes it
+        cached.evicted = true;
+      } else {
+        closeQuietly(cached.statement);
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (closed) {
+      throw new SQLException("Pool is closed : " + url);
+    }
+    long deadline = System.nanoTime() + borrowTimeoutNanos;
+    try {
+      if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        throw new SQLTransientConnectionException("Timed out waiting for a connection : " + url);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a connection : " + url, e);
+    }
+
+    try {
+      PooledConnection pooled = borrowIdle(deadline);
+      if (pooled == null) {
+        pooled =
+            new PooledConnection(
+                DriverResolver.getDefault().connect(url, info), statementCacheSize);
+      }
+      pooled.borrowedNanos = System.nanoTime();
+      if (leakDetector != null) {
+        pooled.borrowStack = new Throwable("Connection borrowed from " + url);
+        pooled.leakReported = false;
+      }
+      borrowed.add(pooled);
+      return (Connection) CONNECTION_PROXY.newInstance(new ConnectionHandler(pooled));
+    } catch (SQLException | RuntimeException | Error e) {
+      permits.release();
+      throw e;
+    } catch (ReflectiveOperationException e) {
+      permits.release();
+      throw new IllegalStateException("Cannot create the connection proxy", e);
+    }
+  }
+
+  /** Not supported, as the credentials of the pooled connections are given to the constructor. */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Connections are opened with the pool properties");
+  }
+
+  // Returns the most recently used valid idle connection, closing the invalid ones
+  private PooledConnection borrowIdle(long deadline) throws SQLException {
+    PooledConnection pooled;
+    while ((pooled = idle.pollFirst()) != null) {
+      long now = System.nanoTime();
+      if (now - pooled.lastUsedNanos < validationIntervalNanos) {
+        return pooled;
+      }
+      long remainingNanos = deadline - now;
+      if (remainingNanos <= 0) {
+        idle.offerFirst(pooled);
+        if (closed && idle.remove(pooled)) {
+          closeQuietly(pooled);
+        }
+        throw new SQLTransientConnectionException("Timed out waiting for a connection : " + url);
+      } else if (remainingNanos < TimeUnit.SECONDS.toNanos(1)) {
+        // isValid takes whole seconds, so the connection is replaced instead of being validated
+        // beyond the budget
+        closeQuietly(pooled);
+        return null;
+      }
+      int timeoutSeconds =
+          (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toSeconds(remainingNanos));
+      try {
+        if (pooled.connection.isValid(timeoutSeconds)) {
+          return pooled;
+        }
+      } catch (SQLException e) {
+        logger.log(Level.FINE, "Validation of a pooled connection failed", e);
+      }
+      closeQuietly(pooled);
+    }
+    return null;
+  }
+
+  // Returns the borrowed connection to the pool, unless it is broken or the pool is closed
+  private void release(PooledConnection pooled, boolean broken, boolean stateChanged) {
+    borrowed.remove(pooled);
+    pooled.borrowStack = null;
+    boolean reusable = !broken && !closed;
+    if (reusable) {
+      try {
+        Connection connection = pooled.connection;
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+          connection.setAutoCommit(true);
+        }
+        if (stateChanged) {
+          for (Map.Entry<String, Object> property : pooled.initialState.entrySet()) {
+            restore(connection, property.getKey(), property.getValue());
+          }
+        }
+        connection.clearWarnings();
+      } catch (SQLException e) {
+        reusable = false;
+      }
+    }
+    if (reusable) {
+      pooled.lastUsedNanos = System.nanoTime();
+      idle.offerFirst(pooled);
+    } else {
+      closeQuietly(pooled);
+    }
+    permits.release();
+
+    // The pool may have been closed while the connection was being returned
+    if (closed && idle.remove(pooled)) {
+      closeQuietly(pooled);
+    }
+  }
+
+  private void reportLeaks() {
+    long now = System.nanoTime();
+    for (PooledConnection pooled : borrowed) {
+      Throwable borrowStack = pooled.borrowStack;
+      if (borrowStack != null
+          && !pooled.leakReported
+          && now - pooled.borrowedNanos > leakThresholdNanos) {
+        pooled.leakReported = true;
+        logger.log(
+            Level.WARNING,
+            "Connection borrowed for more than "
+                + TimeUnit.NANOSECONDS.toMillis(leakThresholdNanos)
+                + " ms, it may have leaked",
+            borrowStack);
+      }
+    }
+  }
+
+  /** Returns the max number of connections open at once. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Returns the number of idle connections in the pool. */
+  public int getIdleCount() {
+    return idle.size();
+  }
+
+  /** Returns the number of borrowed connections. */
+  public int getActiveCount() {
+    return borrowed.size();
+  }
+
+  /** Closes the idle connections, and the borrowed ones once they are returned. */
+  @Override
+  public void close() {
+    closed = true;
+    if (leakDetector != null) {
+      leakDetector.shutdownNow();
+    }
+    PooledConnection pooled;
+    while ((pooled = idle.pollFirst()) != null) {
+      closeQuietly(pooled);
+    }
+  }
+
+  private static void closeQuietly(PooledConnection pooled) {
+    for (CachedStatement cached : pooled.statements.values()) {
+      closeQuietly(cached.statement);
+    }
+    pooled.statements.clear();
+    try {
+      pooled.connection.close();
+    } catch (SQLException e) {
+      logger.log(Level.FINE, "Closing a pooled connection failed", e);
+    }
+  }
+
+  private static void closeQuietly(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      logger.log(Level.FINE, "Closing a pooled statement failed", e);
+    }
+  }
+
+  // Returns the value of the connection property of the setter
+  private static Object valueOf(Connection connection, String setter) throws SQLException {
+    switch (setter) {
+      case "setReadOnly":
+        return connection.isReadOnly();
+      case "setTransactionIsolation":
+        return connection.getTransactionIsolation();
+      case "setCatalog":
+        return connection.getCatalog();
+      case "setSchema":
+        return connection.getSchema();
+      case "setNetworkTimeout":
+        return connection.getNetworkTimeout();
+      case "setTypeMap":
+        return connection.getTypeMap();
+      case "setHoldability":
+        return connection.getHoldability();
+      default:
+        throw new IllegalArgumentException("Unknown connection property : " + setter);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void restore(Connection connection, String setter, Object value)
+      throws SQLException {
+    switch (setter) {
+      case "setReadOnly":
+        connection.setReadOnly((Boolean) value);
+        break;
+      case "setTransactionIsolation":
+        connection.setTransactionIsolation((Integer) value);
+        break;
+      case "setCatalog":
+        connection.setCatalog((String) value);
+        break;
+      case "setSchema":
+        connection.setSchema((String) value);
+        break;
+      case "setNetworkTimeout":
+        connection.setNetworkTimeout(Runnable::run, (Integer) value);
+        break;
+      case "setTypeMap":
+        connection.setTypeMap((Map<String, Class<?>>) value);
+        break;
+      case "setHoldability":
+        connection.setHoldability((Integer) value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown connection property : " + setter);
+    }
+  }
+
+  // Returns the value of the statement property of the setter
+  private static Object valueOf(Statement statement, String setter) throws SQLException {
+    switch (setter) {
+      case "setMaxRows":
+        return statement.getMaxRows();
+      case "setLargeMaxRows":
+        return statement.getLargeMaxRows();
+      case "setFetchSize":
+        return statement.getFetchSize();
+      case "setFetchDirection":
+        return statement.getFetchDirection();
+      case "setQueryTimeout":
+        return statement.getQueryTimeout();
+      case "setMaxFieldSize":
+        return statement.getMaxFieldSize();
+      default:
+        throw new IllegalArgumentException("Unknown statement property : " + setter);
+    }
+  }
+
+  private static void restore(Statement statement, String setter, Object value)
+      throws SQLException {
+    switch (setter) {
+      case "setMaxRows":
+        statement.setMaxRows((Integer) value);
+        break;
+      case "setLargeMaxRows":
+        statement.setLargeMaxRows((Long) value);
+        break;
+      case "setFetchSize":
+        statement.setFetchSize((Integer) value);
+        break;
+      case "setFetchDirection":
+        statement.setFetchDirection((Integer) value);
+        break;
+      case "setQueryTimeout":
+        statement.setQueryTimeout((Integer) value);
+        break;
+      case "setMaxFieldSize":
+        statement.setMaxFieldSize((Integer) value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown statement property : " + setter);
+    }
+  }
+
+  private static Constructor<?> proxyConstructor(Class<?> type) {
+    try {
+      return Proxy.newProxyInstance(
+              type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> null)
+          .getClass()
+          .getConstructor(InvocationHandler.class);
+    } catch (NoSuchMethodException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  // Forwards the calls of a borrowed connection until it is closed, which returns it to the pool
+  private final class ConnectionHandler implements InvocationHandler {
+    private final PooledConnection pooled;
+    private List<StatementHandler> openStatements;
+    private boolean returned;
+    private boolean broken;
+    private boolean stateChanged;
+
+    ConnectionHandler(PooledConnection pooled) {
+      this.pooled = pooled;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!returned) {
+            returned = true;
+            if (openStatements != null) {
+              for (StatementHandler statement : openStatements) {
+                statement.giveBack();
+              }
+              openStatements = null;
+            }
+            release(pooled, broken, stateChanged);
+          }
+          return null;
+        case "isClosed":
+          return returned || pooled.connection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return pooled.connection.toString();
+        case "unwrap":
+          if (((Class<?>) args[0]).isInstance(proxy)) {
+            return proxy;
+          }
+          break;
+        case "isWrapperFor":
+          if (((Class<?>) args[0]).isInstance(proxy)) {
+            return true;
+          }
+          break;
+        default:
+          break;
+      }
+      if (returned) {
+        throw new SQLException("Connection is closed : " + url);
+      } else if (CONNECTION_SETTERS.contains(method.getName())) {
+        if (pooled.initialState == null) {
+          pooled.initialState = new HashMap<>();
+        }
+        if (!pooled.initialState.containsKey(method.getName())) {
+          try {
+            pooled.initialState.put(
+                method.getName(), valueOf(pooled.connection, method.getName()));
+          } catch (SQLException e) {
+            throw failed(e);
+          }
+        }
+        stateChanged = true;
+      } else if (statementCacheSize > 0
+          && method.getName().equals("prepareStatement")
+          && args.length == 1) {
+        return prepareCached((Connection) proxy, (String) args[0]);
+      }
+      Object result;
+      try {
+        result = method.invoke(pooled.connection, args);
+      } catch (InvocationTargetException e) {
+        throw failed(e.getCause());
+      }
+      if (result instanceof Statement) {
+        // createStatement, prepareStatement and prepareCall
+        return track((Connection) proxy, method.getReturnType(), (Statement) result, null);
+      }
+      return result;
+    }
+
+    // Returns the cached statement of the SQL, preparing it if it is not cached or in use
+    private Object prepareCached(Connection connection, String sql) throws Throwable {
+      CachedStatement cached = pooled.statements.get(sql);
+      if (cached == null || cached.inUse) {
+        PreparedStatement statement;
+        try {
+          statement = pooled.connection.prepareStatement(sql);
+        } catch (SQLException e) {
+          throw failed(e);
+        }
+        if (cached != null) {
+          return track(connection, PreparedStatement.class, statement, null);
+        }
+        cached = new CachedStatement(statement);
+        pooled.statements.put(sql, cached);
+      }
+      cached.inUse = true;
+      return track(connection, PreparedStatement.class, cached.statement, cached);
+    }
+
+    // Returns a proxy of the statement of the given type, which is given back when the connection
+    // is returned. The statement is closed then unless it is cached.
+    private Object track(
+        Connection connection, Class<?> type, Statement statement, CachedStatement cached)
+        throws ReflectiveOperationException {
+      Constructor<?> constructor =
+          type == CallableStatement.class
+              ? CALLABLE_STATEMENT_PROXY
+              : type == PreparedStatement.class ? PREPARED_STATEMENT_PROXY : STATEMENT_PROXY;
+      StatementHandler handler = new StatementHandler(connection, statement, cached);
+      if (openStatements == null) {
+        openStatements = new ArrayList<>();
+      }
+      openStatements.add(handler);
+      return constructor.newInstance(handler);
+    }
+
+    // Marks the connection as broken if the exception is a connection error
+    private Throwable failed(Throwable exception) {
+      if (exception instanceof SQLException) {
+        String state = ((SQLException) exception).getSQLState();
+        broken |= state != null && state.startsWith(CONNECTION_ERROR_CLASS);
+      }
+      return exception;
+    }
+
+    // Forwards the calls of a statement until it is closed, which gives it back
+    private final class StatementHandler implements InvocationHandler {
+      private final Connection connection;
+      private final Statement statement;
+      private final CachedStatement cached;
+      private boolean closed;
+      private boolean stateChanged;
+
+      StatementHandler(Connection connection, Statement statement, CachedStatement cached) {
+        this.connection = connection;
+        this.statement = statement;
+        this.cached = cached;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+          case "close":
+            if (!closed) {
+              openStatements.remove(this);
+              giveBack();
+            }
+            return null;
+          case "isClosed":
+            return closed;
+          case "getConnection":
+            return connection;
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "toString":
+            return statement.toString();
+          default:
+            break;
+        }
+        if (closed) {
+          throw new SQLException("Statement is closed : " + url);
+        } else if (cached != null && STATEMENT_SETTERS.contains(method.getName())) {
+          if (cached.initialState == null) {
+            cached.initialState = new HashMap<>();
+          }
+          if (!cached.initialState.containsKey(method.getName())) {
+            try {
+              cached.initialState.put(method.getName(), valueOf(statement, method.getName()));
+            } catch (SQLException e) {
+              throw failed(e);
+            }
+          }
+          stateChanged = true;
+        }
+        try {
+          return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+          throw failed(e.getCause());
+        }
+      }
+
+      // Clears a cached statement for the next borrower, or closes it if it is not cached or was
+      // evicted
+      void giveBack() {
+        closed = true;
+        if (cached == null) {
+          closeQuietly(statement);
+          return;
+        }
+        cached.inUse = false;
+        if (cached.evicted) {
+          closeQuietly(cached.statement);
+          return;
+        }
+        try {
+          cached.statement.clearBatch();
+          cached.statement.clearParameters();
+          if (stateChanged) {
+            for (Map.Entry<String, Object> property : cached.initialState.entrySet()) {
+              restore(cached.statement, property.getKey(), property.getValue());
+            }
+          }
+        } catch (SQLException e) {
+          cached.evicted = true;
+          pooled.statements.values().remove(cached);
+          closeQuietly(cached.statement);
+        }
+      }
+    }
+  }
+
+  @Override
+  public PrintWriter getLogWriter() {
+    return logWriter;
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) {
+    this.logWriter = out;
+  }
+
+  /** Not supported, the borrow timeout is given to the constructor. */
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    throw new SQLFeatureNotSupportedException("The borrow timeout is given to the constructor");
+  }
+
+  @Override
+  public int getLoginTimeout() {
+    return (int) TimeUnit.NANOSECONDS.toSeconds(borrowTimeoutNanos);
+  }
+
+  @Override
+  public Logger getParentLogger() {
+    return logger;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> type) throws SQLException {
+    if (type.isInstance(this)) {
+      return type.cast(this);
+    }
+    throw new SQLException("Not a wrapper of " + type.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> type) {
+    return type.isInstance(this);
+  }
+}
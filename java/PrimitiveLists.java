@@ -0,0 +1,346 @@
+package com.example;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * This class adapts primitive arrays to {@link IntList}, {@link LongList} and {@link DoubleList}
+ * views, as {@link Arrays#asList(Object...)} adapts object arrays to a {@link List}.
+ *
+ * <p>The views read and write through to the array without boxing, and their spliterators and
+ * streams are the primitive ones of {@link Arrays}, so a numeric loop or stream over a view costs
+ * the same as over the array. The values are only boxed when they are read through the {@code
+ * boxed()} list. Views are as thread-safe as the array.
+ */
+public final class PrimitiveLists {
+
+  private PrimitiveLists() {}
+
+  public static IntList asIntList(int... array) {
+    return new IntArrayView(array, 0, array.length);
+  }
+
+  /** Returns a view of the range from index {@code from} inclusive to {@code to} exclusive. */
+  public static IntList asIntList(int[] array, int from, int to) {
+    return new IntArrayView(array, from, to);
+  }
+
+  public static LongList asLongList(long... array) {
+    return new LongArrayView(array, 0, array.length);
+  }
+
+  /** Returns a view of the range from index {@code from} inclusive to {@code to} exclusive. */
+  public static LongList asLongList(long[] array, int from, int to) {
+    return new LongArrayView(array, from, to);
+  }
+
+  public static DoubleList asDoubleList(double... array) {
+    return new DoubleArrayView(array, 0, array.length);
+  }
+
+  /** Returns a view of the range from index {@code from} inclusive to {@code to} exclusive. */
+  public static DoubleList asDoubleList(double[] array, int from, int to) {
+    return new DoubleArrayView(array, from, to);
+  }
+
+  // A view of a range of an int array
+  private static final class IntArrayView implements IntList, RandomAccess {
+    private final int[] array;
+    private final int from;
+    private final int size;
+
+    IntArrayView(int[] array, int from, int to) {
+      Objects.checkFromToIndex(from, to, array.length);
+      this.array = array;
+      this.from = from;
+      this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public int getInt(int index) {
+      return array[from + Objects.checkIndex(index, size)];
+    }
+
+    @Override
+    public int setInt(int index, int value) {
+      int position = from + Objects.checkIndex(index, size);
+      int previous = array[position];
+      array[position] = value;
+      return previous;
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+      return Arrays.spliterator(array, from, from + size);
+    }
+
+    @Override
+    public IntStream stream() {
+      return Arrays.stream(array, from, from + size);
+    }
+
+    @Override
+    public int[] toArray() {
+      return Arrays.copyOfRange(array, from, from + size);
+    }
+
+    @Override
+    public List<Integer> boxed() {
+      return new AbstractList<Integer>() {
+        @Override
+        public int size() {
+          return size;
+        }
+
+        @Override
+        public Integer get(int index) {
+          return getInt(index);
+        }
+
+        @Override
+        public Integer set(int index, Integer value) {
+          return setInt(index, value);
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof IntList)) {
+        return false;
+      }
+      IntList list = (IntList) other;
+      if (list.size() != size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (list.getInt(i) != array[from + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 1;
+      for (int i = from; i < from + size; i++) {
+        hash = 31 * hash + Integer.hashCode(array[i]);
+      }
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(toArray());
+    }
+  }
+
+  // A view of a range of a long array
+  private static final class LongArrayView implements LongList, RandomAccess {
+    private final long[] array;
+    private final int from;
+    private final int size;
+
+    LongArrayView(long[] array, int from, int to) {
+      Objects.checkFromToIndex(from, to, array.length);
+      this.array = array;
+      this.from = from;
+      this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public long getLong(int index) {
+      return array[from + Objects.checkIndex(index, size)];
+    }
+
+    @Override
+    public long setLong(int index, long value) {
+      int position = from + Objects.checkIndex(index, size);
+      long previous = array[position];
+      array[position] = value;
+      return previous;
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+      return Arrays.spliterator(array, from, from + size);
+    }
+
+    @Override
+    public LongStream stream() {
+      return Arrays.stream(array, from, from + size);
+    }
+
+    @Override
+    public long[] toArray() {
+      return Arrays.copyOfRange(array, from, from + size);
+    }
+
+    @Override
+    public List<Long> boxed() {
+      return new AbstractList<Long>() {
+        @Override
+        public int size() {
+          return size;
+        }
+
+        @Override
+        public Long get(int index) {
+          return getLong(index);
+        }
+
+        @Override
+        public Long set(int index, Long value) {
+          return setLong(index, value);
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof LongList)) {
+        return false;
+      }
+      LongList list = (LongList) other;
+      if (list.size() != size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (list.getLong(i) != array[from + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 1;
+      for (int i = from; i < from + size; i++) {
+        hash = 31 * hash + Long.hashCode(array[i]);
+      }
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(toArray());
+    }
+  }
+
+  // A view of a range of a double array
+  private static final class DoubleArrayView implements DoubleList, RandomAccess {
+    private final double[] array;
+    private final int from;
+    private final int size;
+
+    DoubleArrayView(double[] array, int from, int to) {
+      Objects.checkFromToIndex(from, to, array.length);
+      this.array = array;
+      this.from = from;
+      this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public double getDouble(int index) {
+      return array[from + Objects.checkIndex(index, size)];
+    }
+
+    @Override
+    public double setDouble(int index, double value) {
+      int position = from + Objects.checkIndex(index, size);
+      double previous = array[position];
+      array[position] = value;
+      return previous;
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+      return Arrays.spliterator(array, from, from + size);
+    }
+
+    @Override
+    public DoubleStream stream() {
+      return Arrays.stream(array, from, from + size);
+    }
+
+    @Override
+    public double[] toArray() {
+      return Arrays.copyOfRange(array, from, from + size);
+    }
+
+    @Override
+    public List<Double> boxed() {
+      return new AbstractList<Double>() {
+        @Override
+        public int size() {
+          return size;
+        }
+
+        @Override
+        public Double get(int index) {
+          return getDouble(index);
+        }
+
+        @Override
+        public Double set(int index, Double value) {
+          return setDouble(index, value);
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof DoubleList)) {
+        return false;
+      }
+      DoubleList list = (DoubleList) other;
+      if (list.size() != size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (Double.compare(list.getDouble(i), array[from + i]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 1;
+      for (int i = from; i < from + size; i++) {
+        hash = 31 * hash + Double.hashCode(array[i]);
+      }
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(toArray());
+    }
+  }
+}
@@ -0,0 +1,399 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class is a builder for very large texts, which appends into fixed-size chunks instead of
+ * one array that is doubled and copied as it grows.
+ *
+ * <p>The text is a list of segments, ranges of chunks which are never written again once they are
+ * part of a segment. So appending another builder shares its segments without copying them, and
+ * {@link #subSequence(int, int)} shares the segments of the range. Like {@code String}, chunks
+ * store Latin-1 chars in a {@code byte[]}, and are only inflated to a {@code char[]} when another
+ * char is appended. The builder is a {@link CharSequence}, and {@link #writeTo(Writer)} and {@link
+ * #writeTo(WritableByteChannel, Charset)} stream it chunk by chunk, without ever building one
+ * array of the whole text. Builders are not thread-safe.
+ */
+public final class RopeBuilder implements CharSequence, Appendable {
+
+  private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+  private static final int WRITE_BUFFER_SIZE = 1 << 13;
+
+  private final int chunkSize;
+
+  // The sealed segments, a range of a byte[] of Latin-1 chars or of a char[] each
+  private Object[] arrays = new Object[8];
+  private int[] offsets = new int[8];
+  private int[] starts = new int[9];
+  private int segments;
+  private int lastSegment;
+
+  // The chunk being written, which holds tailLength chars from tailOffset
+  private Object tail;
+  private int tailOffset;
+  private int tailLength;
+
+  public RopeBuilder() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  public RopeBuilder(int chunkSize) {
+    if (chunkSize < 16) {
+      throw new IllegalArgumentException("Chunk size is too small : " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public int length() {
+    return starts[segments] + tailLength;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of length " + length());
+    }
+    int sealedLength = starts[segments];
+    if (index >= sealedLength) {
+      return charAt(tail, tailOffset + index - sealedLength);
+    }
+    int segment = lastSegment;
+    if (index < starts[segment] || index >= starts[segment + 1]) {
+      segment = Arrays.binarySearch(starts, 0, segments + 1, index);
+      segment = segment >= 0 ? segment : -segment - 2;
+      // Sequential scans use the same segment until its end
+      lastSegment = segment;
+    }
+    return charAt(arrays[segment], offsets[segment] + index - starts[segment]);
+  }
+
+  /** Returns a builder sharing the chars of the range with this builder. */
+  @Override
+  public RopeBuilder subSequence(int start, int end) {
+    if (start < 0 || start > end || end > length()) {
+      throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") of " + length());
+    }
+    RopeBuilder rope = new RopeBuilder(chunkSize);
+    int position = 0;
+    for (int segment = 0; segment <= segments && position < end; segment++) {
+      Object array = segment < segments ? arrays[segment] : tail;
+      int offset = segment < segments ? offsets[segment] : tailOffset;
+      int length = segment < segments ? segmentLength(segment) : tailLength;
+      int from = Math.max(start - position, 0);
+      int to = Math.min(end - position, length);
+      if (from < to) {
+        rope.addSegment(array, offset + from, to - from);
+      }
+      position += length;
+    }
+    return rope;
+  }
+
+  @Override
+  public RopeBuilder append(char c) {
+    reserve(1);
+    if (tail == null || tailLength == chunkSize - tailOffset) {
+      newTail();
+    }
+    if (tail instanceof byte[] && c > 0xFF) {
+      inflateTail();
+    }
+    if (tail instanceof byte[]) {
+      ((byte[]) tail)[tailOffset + tailLength++] = (byte) c;
+    } else {
+      ((char[]) tail)[tailOffset + tailLength++] = c;
+    }
+    return this;
+  }
+
+  @Override
+  public RopeBuilder append(CharSequence chars) {
+    if (chars instanceof RopeBuilder) {
+      return append((RopeBuilder) chars);
+    }
+    return chars == null ? append("null") : append(chars, 0, chars.length());
+  }
+
+  @Override
+  public RopeBuilder append(CharSequence chars, int start, int end) {
+    if (chars == null) {
+      return append("null", start, end);
+    }
+    reserve(end - start);
+    while (start < end) {
+      if (tail == null || tailLength == chunkSize - tailOffset) {
+        newTail();
+      }
+      int count = Math.min(end - start, chunkSize - tailOffset - tailLength);
+      int position = tailOffset + tailLength;
+      if (tail instanceof byte[]) {
+        byte[] bytes = (byte[]) tail;
+        int copied = 0;
+        for (char c; copied < count && (c = chars.charAt(start + copied)) <= 0xFF; copied++) {
+          bytes[position + copied] = (byte) c;
+        }
+        tailLength += copied;
+        start += copied;
+        if (copied < count) {
+          inflateTail();
+        }
+      } else {
+        char[] tailChars = (char[]) tail;
+        if (chars instanceof String) {
+          ((String) chars).getChars(start, start + count, tailChars, position);
+        } else {
+          for (int i = 0; i < count; i++) {
+            tailChars[position + i] = chars.charAt(start + i);
+          }
+        }
+        tailLength += count;
+        start += count;
+      }
+    }
+    return this;
+  }
+
+  public RopeBuilder append(String string) {
+    return append((CharSequence) string);
+  }
+
+  public RopeBuilder append(char[] chars, int offset, int length) {
+    return append(CharBuffer.wrap(chars, offset, length));
+  }
+
+  public RopeBuilder append(long value) {
+    return append(Long.toString(value));
+  }
+
+  /**
+   * Appends the chars of the other builder. Their segments are shared, so the cost depends on the
+   * number of segments and not on the number of chars, except for small builders which are copied
+   * so that the chunks are not fragmented.
+   */
+  public RopeBuilder append(RopeBuilder other) {
+    int length = other.length();
+    reserve(length);
+    if (length < chunkSize / 4) {
+      return appendCopy(other, length);
+    }
+
+    int otherSegments = other.segments;
+    Object otherTail = other.tail;
+    int otherTailOffset = other.tailOffset;
+    int otherTailLength = other.tailLength;
+    sealTail();
+    for (int segment = 0; segment < otherSegments; segment++) {
+      addSegment(other.arrays[segment], other.offsets[segment], other.segmentLength(segment));
+    }
+    if (otherTailLength > 0) {
+      addSegment(otherTail, otherTailOffset, otherTailLength);
+    }
+    return this;
+  }
+
+  /** Writes the chars to the writer, one chunk at a time. */
+  public void writeTo(Writer writer) throws IOException {
+    char[] buffer = null;
+    for (int segment = 0; segment <= segments; segment++) {
+      Object array = segment < segments ? arrays[segment] : tail;
+      int offset = segment < segments ? offsets[segment] : tailOffset;
+      int length = segment < segments ? segmentLength(segment) : tailLength;
+      if (length == 0) {
+        continue;
+      }
+      if (array instanceof char[]) {
+        writer.write((char[]) array, offset, length);
+      } else {
+        if (buffer == null) {
+          buffer = new char[WRITE_BUFFER_SIZE];
+        }
+        for (int written = 0; written < length; written += buffer.length) {
+          int count = Math.min(buffer.length, length - written);
+          inflate((byte[]) array, offset + written, buffer, 0, count);
+          writer.write(buffer, 0, count);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the chars to the channel encoded with the charset, one chunk at a time. Latin-1 chunks
+   * are written as they are when the charset encodes them to the same bytes.
+   */
+  public void writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+    CharsetEncoder encoder =
+        charset
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    boolean latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+    boolean ascii =
+        latin1
+            || charset.equals(StandardCharsets.UTF_8)
+            || charset.equals(StandardCharsets.US_ASCII);
+    ByteBuffer output = ByteBuffer.allocate(WRITE_BUFFER_SIZE * 4);
+    CharBuffer input = CharBuffer.allocate(WRITE_BUFFER_SIZE);
+
+    for (int segment = 0; segment <= segments; segment++) {
+      Object array = segment < segments ? arrays[segment] : tail;
+      int offset = segment < segments ? offsets[segment] : tailOffset;
+      int length = segment < segments ? segmentLength(segment) : tailLength;
+      if (length == 0) {
+        continue;
+      }
+      if (array instanceof byte[]
+          && input.position() == 0
+          && (latin1 || (ascii && isAscii((byte[]) array, offset, length)))) {
+        drain(output, channel);
+        ByteBuffer bytes = ByteBuffer.wrap((byte[]) array, offset, length);
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+        continue;
+      }
+
+      for (int written = 0; written < length; ) {
+        int count = Math.min(input.remaining(), length - written);
+        if (array instanceof byte[]) {
+          inflate((byte[]) array, offset + written, input.array(), input.position(), count);
+          input.position(input.position() + count);
+        } else {
+          input.put((char[]) array, offset + written, count);
+        }
+        written += count;
+        encode(encoder, input.flip(), output, channel, false);
+        // Keeps a high surrogate whose low surrogate is in the next chunk
+        input.compact();
+      }
+    }
+    encode(encoder, input.flip(), output, channel, true);
+    while (encoder.flush(output) == CoderResult.OVERFLOW) {
+      drain(output, channel);
+    }
+    drain(output, channel);
+  }
+
+  /** Returns the chars as a string, which is only possible for texts fitting into one array. */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(length());
+    for (int segment = 0; segment <= segments; segment++) {
+      Object array = segment < segments ? arrays[segment] : tail;
+      int offset = segment < segments ? offsets[segment] : tailOffset;
+      int length = segment < segments ? segmentLength(segment) : tailLength;
+      if (length == 0) {
+        continue;
+      }
+      if (array instanceof char[]) {
+        builder.append((char[]) array, offset, length);
+      } else {
+        builder.append(new String((byte[]) array, offset, length, StandardCharsets.ISO_8859_1));
+      }
+    }
+    return builder.toString();
+  }
+
+  private RopeBuilder appendCopy(RopeBuilder other, int length) {
+    for (int i = 0; i < length; i++) {
+      append(other.charAt(i));
+    }
+    return this;
+  }
+
+  private int segmentLength(int segment) {
+    return starts[segment + 1] - starts[segment];
+  }
+
+  private void reserve(int additional) {
+    if ((long) length() + additional > Integer.MAX_VALUE) {
+      throw new OutOfMemoryError("Rope length exceeds " + Integer.MAX_VALUE);
+    }
+  }
+
+  private void newTail() {
+    sealTail();
+    tail = new byte[chunkSize];
+    tailOffset = 0;
+  }
+
+  // Turns the written chars of the tail into a segment, the rest of the tail stays writable
+  private void sealTail() {
+    if (tailLength > 0) {
+      addSegment(tail, tailOffset, tailLength);
+      tailOffset += tailLength;
+      tailLength = 0;
+    }
+  }
+
+  // Copies the tail into a char[], the byte[] may still be shared by other segments
+  private void inflateTail() {
+    char[] chars = new char[chunkSize];
+    inflate((byte[]) tail, tailOffset, chars, tailOffset, tailLength);
+    tail = chars;
+  }
+
+  private void addSegment(Object array, int offset, int length) {
+    if (segments == arrays.length) {
+      arrays = Arrays.copyOf(arrays, segments * 2);
+      offsets = Arrays.copyOf(offsets, segments * 2);
+      starts = Arrays.copyOf(starts, segments * 2 + 1);
+    }
+    arrays[segments] = array;
+    offsets[segments] = offset;
+    starts[segments + 1] = starts[segments] + length;
+    segments++;
+  }
+
+  private static char charAt(Object array, int index) {
+    if (array instanceof byte[]) {
+      return (char) (((byte[]) array)[index] & 0xFF);
+    }
+    return ((char[]) array)[index];
+  }
+
+  private static void inflate(byte[] bytes, int offset, char[] chars, int charOffset, int length) {
+    for (int i = 0; i < length; i++) {
+      chars[charOffset + i] = (char) (bytes[offset + i] & 0xFF);
+    }
+  }
+
+  private static boolean isAscii(byte[] bytes, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (bytes[i] < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void encode(
+      CharsetEncoder encoder,
+      CharBuffer input,
+      ByteBuffer output,
+      WritableByteChannel channel,
+      boolean endOfInput)
+      throws IOException {
+    while (encoder.encode(input, output, endOfInput) == CoderResult.OVERFLOW) {
+      drain(output, channel);
+    }
+  }
+
+  private static void drain(ByteBuffer output, WritableByteChannel channel) throws IOException {
+    output.flip();
+    while (output.hasRemaining()) {
+      channel.write(output);
+    }
+    output.clear();
+  }
+}
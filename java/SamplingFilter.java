@@ -0,0 +1,201 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Filter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * This class is a {@link Filter} which bounds the number of records logged per call site, so a
+ * loop logging once per element cannot flood the handlers when the throughput spikes.
+ *
+ * <p>A call site is identified by the logger name and the message template of the record, which
+ * are known without inferring the caller of the record. Records are first sampled with the given
+ * rate, then rate limited with a lock-free token bucket (as a generic cell rate algorithm on a
+ * single {@link AtomicLong}) per call site. Suppressed records are counted with striped {@link
+ * LongAdder}s, and a background thread logs a summary record through the logger of each site with
+ * suppressed records once per summary interval, whether or not the site is still logging. The same
+ * sweep evicts the sites whose bucket is full again, which are the same as new sites, so a
+ * long-running process logging many distinct templates keeps only its active sites. Once {@code
+ * 1024} sites are active, the records of new sites share one site until the next sweep, whose
+ * summaries are logged through the root logger.
+ */
+public class SamplingFilter implements Filter, AutoCloseable {
+
+  private static final int MAX_SITES = 1024;
+
+  private final long emissionIntervalNanos;
+  private final long burstToleranceNanos;
+  private final double sampleRate;
+
+  // The sites by logger name, then by template
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Site>> sites =
+      new ConcurrentHashMap<>();
+  private final AtomicInteger siteCount = new AtomicInteger();
+  private final Site overflowSite;
+  private final ScheduledExecutorService summarizer;
+
+  // Rate limiter state and suppression counter of a single call site
+  private static final class Site {
+    final String loggerName;
+    final String template;
+    final Level level;
+    final AtomicLong theoreticalArrival;
+    final LongAdder suppressed = new LongAdder();
+
+    Site(String loggerName, String template, Level level) {
+      this.loggerName = loggerName;
+      this.template = template;
+      this.level = level;
+      this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+  }
+
+  // Marks the summary records, so they are never suppressed themselves
+  private static final class SummaryRecord extends LogRecord {
+    private static final long serialVersionUID = 1L;
+
+    SummaryRecord(Level level, String loggerName, long count, String template) {
+      super(level, "{0} records suppressed for : {1}");
+      setParameters(new Object[] {count, template});
+      setLoggerName(loggerName);
+      setSourceClassName(SamplingFilter.class.getName());
+      setSourceMethodName("summarize");
+    }
+  }
+
+  /**
+   * Creates the filter, and starts the daemon thread logging its summaries.
+   *
+   * @param permitsPerSecond the sustained number of records logged per second and call site
+   * @param burst the number of records a call site can log at once after being idle
+   * @param sampleRate the probability of a record to be considered at all, between 0 and 1
+   * @param summaryInterval the time between two summaries of the same call site
+   */
+  public SamplingFilter(
+      double permitsPerSecond, int burst, double sampleRate, Duration summaryInterval) {
+    if (permitsPerSecond <= 0 || burst < 1 || sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("Invalid rate limit or sample rate");
+    } else if (summaryInterval.isNegative() || summaryInterval.isZero()) {
+      throw new IllegalArgumentException("Invalid summary interval : " + summaryInterval);
+    }
+    this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+    this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+    this.sampleRate = sampleRate;
+    this.overflowSite = new Site("", "other call sites", Level.INFO);
+    this.summarizer =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "SamplingFilter-summarizer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long period = summaryInterval.toNanos();
+    summarizer.scheduleAtFixedRate(this::summarize, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public boolean isLoggable(LogRecord record) {
+    if (record instanceof SummaryRecord) {
+      return true;
+    }
+
+    Site site = site(record);
+    boolean loggable = sample() && acquire(site, System.nanoTime());
+    if (!loggable) {
+      site.suppressed.increment();
+    }
+    return loggable;
+  }
+
+  private Site site(LogRecord record) {
+    String loggerName = record.getLoggerName() != null ? record.getLoggerName() : "";
+    String template = record.getMessage() != null ? record.getMessage() : "";
+    ConcurrentHashMap<String, Site> loggerSites = sites.get(loggerName);
+    Site site = loggerSites != null ? loggerSites.get(template) : null;
+    if (site != null) {
+      return site;
+    } else if (siteCount.get() >= MAX_SITES) {
+      return overflowSite;
+    }
+    if (loggerSites == null) {
+      loggerSites = sites.computeIfAbsent(loggerName, name -> new ConcurrentHashMap<>());
+    }
+    return loggerSites.computeIfAbsent(
+        template,
+        key -> {
+          siteCount.incrementAndGet();
+          return new Site(loggerName, key, record.getLevel());
+        });
+  }
+
+  private boolean sample() {
+    return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  private boolean acquire(Site site, long now) {
+    while (true) {
+      long arrival = site.theoreticalArrival.get();
+      long start = arrival - now > 0 ? arrival : now;
+      if (start - now > burstToleranceNanos) {
+        return false;
+      }
+      if (site.theoreticalArrival.compareAndSet(arrival, start + emissionIntervalNanos)) {
+        return true;
+      }
+    }
+  }
+
+  // Logs the summaries of the sites with suppressed records, and evicts the idle sites
+  private void summarize() {
+    long now = System.nanoTime();
+    for (Map<String, Site> loggerSites : sites.values()) {
+      for (Site site : loggerSites.values()) {
+        long count = site.suppressed.sumThenReset();
+        if (count == 0
+            && site.theoreticalArrival.get() - now <= 0
+            && loggerSites.remove(site.template, site)) {
+          siteCount.decrementAndGet();
+          // Reports the records counted while the site was being evicted
+          count = site.suppressed.sumThenReset();
+        }
+        report(site, count);
+      }
+    }
+    report(overflowSite, overflowSite.suppressed.sumThenReset());
+  }
+
+  private static void report(Site site, long count) {
+    if (count > 0) {
+      Logger.getLogger(site.loggerName)
+          .log(new SummaryRecord(site.level, site.loggerName, count, site.template));
+    }
+  }
+
+  /** Returns the number of suppressed records not yet reported by a summary. */
+  public long getSuppressedCount() {
+    long count = overflowSite.suppressed.sum();
+    for (Map<String, Site> loggerSites : sites.values()) {
+      for (Site site : loggerSites.values()) {
+        count += site.suppressed.sum();
+      }
+    }
+    return count;
+  }
+
+  /** Stops the summaries, after which the filter still rate limits the records. */
+  @Override
+  public void close() {
+    summarizer.shutdown();
+  }
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * This class is a pool of reusable {@link StringBuilder}s for building messages.
+ *
+ * <p>The builders are kept in a small striped array instead of a {@code ThreadLocal}, so the pool
+ * stays bounded with any number of threads, including virtual threads which would each get their
+ * own thread-local builder. The pooled objects are the leases themselves, each owning a builder, so
+ * a thread takes the lease of its stripe, or of the next stripe, without allocating, and a new
+ * lease and builder are created only when both are taken. Builders which grew past {@value
+ * #MAX_RETAINED_CAPACITY} chars are replaced on release, so a single large message does not pin
+ * its buffer forever. Apart from these, the only allocation per message is its string, and the
+ * body of {@link #build(Consumer)} if it captures variables.
+ *
+ * <pre>{@code
+ * try (StringBuilders.Lease lease = StringBuilders.acquire()) {
+ *   String message = lease.builder().append("Hello").append(" World").toString();
+ * }
+ * }</pre>
+ */
+public final class StringBuilders {
+
+  private static final int INITIAL_CAPACITY = 256;
+  private static final int MAX_RETAINED_CAPACITY = 8192;
+  private static final int STRIPES =
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+
+  private static final AtomicReferenceArray<Lease> pool =
+      new AtomicReferenceArray<>(STRIPES);
+
+  private StringBuilders() {}
+
+  /**
+   * Takes a lease of an empty builder from the pool, which is returned to the pool when the lease
+   * is closed.
+   */
+  public static Lease acquire() {
+    int stripe = stripe();
+    Lease lease = pool.getAndSet(stripe, null);
+    if (lease == null) {
+      stripe = (stripe + 1) & (STRIPES - 1);
+      lease = pool.getAndSet(stripe, null);
+    }
+    if (lease == null) {
+      lease = new Lease();
+    }
+    lease.stripe = stripe;
+    lease.leased = true;
+    return lease;
+  }
+
+  /** Builds a string with a pooled builder, which must not be kept by the body. */
+  public static String build(Consumer<StringBuilder> body) {
+    try (Lease lease = acquire()) {
+      body.accept(lease.builder);
+      return lease.builder.toString();
+    }
+  }
+
+  private static int stripe() {
+    long id = Thread.currentThread().getId();
+    return (int) (id ^ (id >>> 32)) * 0x9E3779B9 >>> 16 & (STRIPES - 1);
+  }
+
+  private static void release(Lease lease) {
+    if (lease.builder.capacity() > MAX_RETAINED_CAPACITY) {
+      lease.builder = new StringBuilder(INITIAL_CAPACITY);
+    } else {
+      lease.builder.setLength(0);
+    }
+    lease.leased = false;
+    pool.compareAndSet(lease.stripe, null, lease);
+  }
+
+  /**
+   * A builder taken from the pool, which must be closed by the thread that acquired it. The lease
+   * is itself pooled, so neither the lease nor its builder may be used after it is closed, when it
+   * may already be leased again.
+   */
+  public static final class Lease implements AutoCloseable {
+
+    private StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+    private int stripe;
+    private boolean leased;
+
+    private Lease() {}
+
+    /** Returns the builder, which must not be used after the lease is closed. */
+    public StringBuilder builder() {
+      if (!leased) {
+        throw new IllegalStateException("Lease already closed");
+      }
+      return builder;
+    }
+
+    @Override
+    public void close() {
+      if (leased) {
+        release(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is a {@link StringBuilder}-like builder which encodes everything appended to it as
+ * UTF-8 directly into a growable heap or direct {@link ByteBuffer}.
+ *
+ * <p>Output built with a {@code StringBuilder} is copied into a {@code String} and then encoded to
+ * a new {@code byte[]} before it is written. Here numbers are written as ASCII digits without an
+ * intermediate string, text is encoded while it is appended, and {@link
+ * #writeTo(WritableByteChannel)} writes the buffer as it is, so a direct builder is written to a
+ * file or socket channel without any copy on the heap. Unpaired surrogates are encoded as {@code
+ * '?'}, as {@link String#getBytes(java.nio.charset.Charset)} does. Builders are not thread-safe.
+ */
+public final class Utf8Builder implements Appendable {
+
+  private static final int DEFAULT_CAPACITY = 256;
+  // Double.toString prints values in this range without an exponent
+  private static final double MIN_PLAIN_DOUBLE = 1e-3;
+  private static final double MAX_PLAIN_DOUBLE = 1e7;
+  private static final double[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+
+  private final boolean direct;
+  private ByteBuffer buffer;
+  private char highSurrogate;
+
+  public Utf8Builder() {
+    this(DEFAULT_CAPACITY, false);
+  }
+
+  /** Creates a builder of the given capacity in bytes, backed by a direct buffer if requested. */
+  public Utf8Builder(int initialCapacity, boolean direct) {
+    this.direct = direct;
+    this.buffer = allocate(Math.max(initialCapacity, 16));
+  }
+
+  @Override
+  public Utf8Builder append(char c) {
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        putCodePoint(Character.toCodePoint(high, c));
+        return this;
+      }
+      ensureCapacity(1).put((byte) '?');
+    }
+
+    if (c < 0x80) {
+      ensureCapacity(1).put((byte) c);
+    } else if (c < 0x800) {
+      ensureCapacity(2).put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      ensureCapacity(1).put((byte) '?');
+    } else {
+      ensureCapacity(3)
+          .put((byte) (0xE0 | c >> 12))
+          .put((byte) (0x80 | c >> 6 & 0x3F))
+          .put((byte) (0x80 | c & 0x3F));
+    }
+    return this;
+  }
+
+  @Override
+  public Utf8Builder append(CharSequence chars) {
+    return chars == null ? appendAscii("null") : append(chars, 0, chars.length());
+  }
+
+  @Override
+  public Utf8Builder append(CharSequence chars, int start, int end) {
+    if (chars == null) {
+      return append("null", start, end);
+    }
+    // Every char takes at most 3 bytes, surrogate pairs take 4 for 2 chars
+    ensureCapacity((end - start) * 3 + 1);
+    int i = highSurrogate == 0 ? appendAsciiPrefix(chars, start, end) : start;
+    for (; i < end; i++) {
+      append(chars.charAt(i));
+    }
+    return this;
+  }
+
+  public Utf8Builder append(String string) {
+    return append((CharSequence) string);
+  }
+
+  public Utf8Builder append(boolean value) {
+    return appendAscii(value ? "true" : "false");
+  }
+
+  public Utf8Builder append(int value) {
+    return append((long) value);
+  }
+
+  public Utf8Builder append(long value) {
+    flushSurrogate();
+    if (value == Long.MIN_VALUE) {
+      return appendAscii("-9223372036854775808");
+    }
+    int digits = digitCount(Math.abs(value));
+    ensureCapacity(digits + 1);
+    if (value < 0) {
+      buffer.put((byte) '-');
+      value = -value;
+    }
+    int end = buffer.position() + digits;
+    if (buffer.hasArray()) {
+      byte[] array = buffer.array();
+      for (int index = buffer.arrayOffset() + end - 1; value >= 10; index--) {
+        array[index] = (byte) ('0' + value % 10);
+        value /= 10;
+      }
+      array[buffer.arrayOffset() + buffer.position()] = (byte) ('0' + value);
+    } else {
+      for (int index = end - 1; index >= buffer.position(); index--) {
+        buffer.put(index, (byte) ('0' + value % 10));
+        value /= 10;
+      }
+    }
+    buffer.position(end);
+    return this;
+  }
+
+  /** Appends the value as {@link StringBuilder#append(double)} does. */
+  public Utf8Builder append(double value) {
+    double magnitude = Math.abs(value);
+    if (magnitude < MAX_PLAIN_DOUBLE && magnitude >= MIN_PLAIN_DOUBLE) {
+      // A value which is the closest double to a decimal with few fraction digits is printed as
+      // that decimal, so its digits are written without the String of Double.toString
+      for (int scale = 1; scale < POWERS_OF_TEN.length; scale++) {
+        long unscaled = Math.round(magnitude * POWERS_OF_TEN[scale]);
+        if (unscaled / POWERS_OF_TEN[scale] == magnitude) {
+          return appendDecimal(value < 0 ? -unscaled : unscaled, scale);
+        }
+      }
+    } else if (value == 0) {
+      return appendAscii(Double.doubleToRawLongBits(value) == 0 ? "0.0" : "-0.0");
+    }
+    return appendAscii(Double.toString(value));
+  }
+
+  /** Returns the number of bytes appended. */
+  public int length() {
+    return buffer.position();
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /** Removes the appended bytes, keeping the buffer. */
+  public Utf8Builder clear() {
+    buffer.clear();
+    highSurrogate = 0;
+    return this;
+  }
+
+  /**
+   * Returns a read-only view of the appended bytes, which is only valid until the builder is
+   * changed.
+   */
+  public ByteBuffer asByteBuffer() {
+    flushSurrogate();
+    return buffer.asReadOnlyBuffer().flip();
+  }
+
+  /** Writes the appended bytes to the channel, and returns the number of bytes written. */
+  public int writeTo(WritableByteChannel channel) throws IOException {
+    flushSurrogate();
+    int length = buffer.position();
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } finally {
+      buffer.limit(buffer.capacity()).position(length);
+    }
+    return length;
+  }
+
+  public byte[] toByteArray() {
+    ByteBuffer bytes = asByteBuffer();
+    byte[] array = new byte[bytes.remaining()];
+    bytes.get(array);
+    return array;
+  }
+
+  @Override
+  public String toString() {
+    return StandardCharsets.UTF_8.decode(asByteBuffer()).toString();
+  }
+
+  // Appends a string known to be ASCII
+  private Utf8Builder appendAscii(String ascii) {
+    flushSurrogate();
+    ensureCapacity(ascii.length());
+    appendAsciiPrefix(ascii, 0, ascii.length());
+    return this;
+  }
+
+  // Appends the chars up to the first non-ASCII char, and returns its index
+  private int appendAsciiPrefix(CharSequence chars, int start, int end) {
+    int position = buffer.position();
+    int i = start;
+    if (buffer.hasArray()) {
+      byte[] array = buffer.array();
+      int offset = buffer.arrayOffset();
+      for (char c; i < end && (c = chars.charAt(i)) < 0x80; i++) {
+        array[offset + position++] = (byte) c;
+      }
+    } else {
+      for (char c; i < end && (c = chars.charAt(i)) < 0x80; i++) {
+        buffer.put(position++, (byte) c);
+      }
+    }
+    buffer.position(position);
+    return i;
+  }
+
+  // Appends unscaled / 10^scale with at least one fraction digit and without trailing zeros
+  private Utf8Builder appendDecimal(long unscaled, int scale) {
+    long power = (long) POWERS_OF_TEN[scale];
+    while (scale > 1 && unscaled % 10 == 0) {
+      unscaled /= 10;
+      power /= 10;
+      scale--;
+    }
+    if (unscaled < 0) {
+      appendAscii("-");
+      unscaled = -unscaled;
+    }
+    append(unscaled / power);
+    ensureCapacity(scale + 1).put((byte) '.');
+    long fraction = unscaled % power;
+    for (power /= 10; power > 0; power /= 10) {
+      buffer.put((byte) ('0' + fraction / power % 10));
+    }
+    return this;
+  }
+
+  private void putCodePoint(int codePoint) {
+    ensureCapacity(4)
+        .put((byte) (0xF0 | codePoint >> 18))
+        .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+        .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+        .put((byte) (0x80 | codePoint & 0x3F));
+  }
+
+  // Encodes a high surrogate which is not followed by a low surrogate
+  private void flushSurrogate() {
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      ensureCapacity(1).put((byte) '?');
+    }
+  }
+
+  private ByteBuffer ensureCapacity(int additional) {
+    if (buffer.remaining() < additional) {
+      ByteBuffer grown = allocate(Math.max(buffer.capacity() * 2, buffer.position() + additional));
+      grown.put(buffer.flip());
+      buffer = grown;
+    }
+    return buffer;
+  }
+
+  private ByteBuffer allocate(int capacity) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  private static int digitCount(long value) {
+    int count = 1;
+    while (value >= 10) {
+      value /= 10;
+      count++;
+    }
+    return count;
+  }
+}